@@ -0,0 +1,202 @@
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Adaptive question selection for one QuestionBank snapshot, Elo style: every
+ * question and every player has a rating, an answer is a "game" between them,
+ * and both ratings move by how surprising the outcome was. The next question is
+ * the one whose rating is closest to a target a little below the player's, so a
+ * player gets roughly two out of three right whatever their level.
+ *
+ * Ratings live in an AtomicLongArray (double bits) and are updated with CAS, so
+ * any number of sessions rate questions concurrently. For picking, questions are
+ * also kept in a ConcurrentSkipListSet keyed by (rating bucket, index): a pick is
+ * a ceiling/floor lookup, O(log n) even for millions of questions. When a rating
+ * crosses into another bucket its entry is moved under a per-question stripe
+ * lock (there is no global lock), which keeps exactly one entry per question.
+ *
+ * Player ratings are kept for the MAX_PLAYERS most recently seen names only
+ * (quiz.adaptive.maxPlayers), since the server accepts any name; a player
+ * who drops out starts again from INITIAL_RATING. They are read and written
+ * once per session, so one lock around an LRU map is enough.
+ */
+class AdaptiveSelector {
+    static final double INITIAL_RATING = 1500;
+
+    private static final double EASIER_BY = 100;      // target = player - 100: ~64% expected success
+    private static final double TARGET_JITTER = 60;   // so equal players do not all get the same question
+    private static final double BUCKET_WIDTH = 8;     // Elo points per index bucket
+    private static final int BUCKET_OFFSET = 1 << 20; // keeps buckets of any sane rating positive
+    private static final double K_PLAYER = 32;
+    private static final double K_NEW_QUESTION = 24;  // while a question has few answers
+    private static final double K_QUESTION = 8;
+    private static final int PROVISIONAL_ANSWERS = 30;
+    private static final int STRIPES = 256;
+    static final int MAX_PLAYERS = Integer.getInteger("quiz.adaptive.maxPlayers", 100000);
+
+    private final QuestionBank bank;
+    private final AtomicLongArray ratings;
+    private final AtomicIntegerArray answers;
+    private final int[] indexedBucket; // bucket each question is filed under; guarded by its stripe
+    private final Object[] stripes = new Object[STRIPES];
+    private final NavigableSet<Long> index = new ConcurrentSkipListSet<Long>();
+    private final Map<String, Double> players; // LRU; guarded by itself
+
+    /**
+     * Index over bank. Ratings (and player ratings) are carried over from previous,
+     * the selector of an earlier snapshot, for questions whose id is unchanged.
+     */
+    AdaptiveSelector(QuestionBank bank, AdaptiveSelector previous) {
+        int n = bank.size();
+        this.bank = bank;
+        this.ratings = new AtomicLongArray(n);
+        this.answers = new AtomicIntegerArray(n);
+        this.indexedBucket = new int[n];
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Object();
+        Map<Long, Integer> carried = previous == null ? null : previous.ratedById();
+        for (int i = 0; i < n; i++) {
+            double r = INITIAL_RATING;
+            if (carried != null && !carried.isEmpty()) {
+                Integer j = carried.get(bank.get(i).getId());
+                if (j != null) {
+                    r = previous.rating(j);
+                    answers.set(i, previous.answers.get(j));
+                }
+            }
+            ratings.set(i, Double.doubleToLongBits(r));
+            indexedBucket[i] = bucket(r);
+            index.add(key(indexedBucket[i], i));
+        }
+        this.players = previous == null ? newPlayerMap(MAX_PLAYERS) : previous.players;
+    }
+
+    /** Access-ordered map that drops its least recently used player beyond capacity. */
+    private static Map<String, Double> newPlayerMap(final int capacity) {
+        return new LinkedHashMap<String, Double>(1024, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<String, Double> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    QuestionBank getBank() { return bank; }
+
+    double rating(int i) {
+        return Double.longBitsToDouble(ratings.get(i));
+    }
+
+    /** Last known rating of a player, or INITIAL_RATING. */
+    double playerRating(String name) {
+        Double r;
+        synchronized (players) {
+            r = players.get(name);
+        }
+        return r == null ? INITIAL_RATING : r;
+    }
+
+    void rememberPlayer(String name, double rating) {
+        synchronized (players) {
+            players.put(name, rating);
+        }
+    }
+
+    /** Number of players whose rating is remembered (at most MAX_PLAYERS). */
+    int players() {
+        synchronized (players) {
+            return players.size();
+        }
+    }
+
+    /**
+     * Picks a question for a player rated playerRating, avoiding taken[0..takenCount).
+     * Returns -1 only if every question is taken.
+     */
+    int pick(double playerRating, int[] taken, int takenCount, Random rnd) {
+        int n = ratings.length();
+        if (takenCount >= n) return -1;
+        int target = bucket(playerRating - EASIER_BY + rnd.nextGaussian() * TARGET_JITTER);
+        // Random index inside the target bucket, so ties are broken uniformly
+        long start = key(target, rnd.nextInt(n));
+        Iterator<Long> up = index.tailSet(start, true).iterator();
+        Iterator<Long> down = index.headSet(start, false).descendingIterator();
+        long nextUp = nextFree(up, taken, takenCount);
+        long nextDown = nextFree(down, taken, takenCount);
+        if (nextUp < 0 && nextDown < 0) return -1;
+        long best;
+        if (nextUp < 0) best = nextDown;
+        else if (nextDown < 0) best = nextUp;
+        else best = (int) (nextUp >>> 32) - target <= target - (int) (nextDown >>> 32) ? nextUp : nextDown;
+        return (int) best;
+    }
+
+    /**
+     * Records one answer to question i by a player rated playerRating and returns
+     * the player's new rating. Lock-free apart from moving the question's index
+     * entry when its bucket changes.
+     */
+    double update(int i, double playerRating, boolean correct) {
+        double score = correct ? 1 : 0;
+        double k = answers.getAndIncrement(i) < PROVISIONAL_ANSWERS ? K_NEW_QUESTION : K_QUESTION;
+        long bits;
+        double expected;
+        do {
+            bits = ratings.get(i);
+            expected = expected(playerRating, Double.longBitsToDouble(bits));
+        } while (!ratings.compareAndSet(i, bits,
+                Double.doubleToLongBits(Double.longBitsToDouble(bits) - k * (score - expected))));
+        reindex(i);
+        return playerRating + K_PLAYER * (score - expected);
+    }
+
+    /** Probability that a player rated player answers a question rated question correctly. */
+    static double expected(double player, double question) {
+        return 1 / (1 + Math.pow(10, (question - player) / 400));
+    }
+
+    /** Moves question i to the bucket of its current rating, if it is filed elsewhere. */
+    private void reindex(int i) {
+        synchronized (stripes[i & (STRIPES - 1)]) {
+            int now = bucket(rating(i));
+            int filed = indexedBucket[i];
+            if (now == filed) return;
+            index.add(key(now, i));
+            index.remove(key(filed, i));
+            indexedBucket[i] = now;
+        }
+    }
+
+    /** Bank indices (by question id) of questions that have been answered at least once. */
+    private Map<Long, Integer> ratedById() {
+        Map<Long, Integer> out = new HashMap<Long, Integer>();
+        for (int i = 0; i < answers.length(); i++) {
+            if (answers.get(i) > 0) out.put(bank.get(i).getId(), i);
+        }
+        return out;
+    }
+
+    private static long nextFree(Iterator<Long> it, int[] taken, int takenCount) {
+        outer:
+        while (it.hasNext()) {
+            long k = it.next();
+            int i = (int) k;
+            for (int t = 0; t < takenCount; t++) if (taken[t] == i) continue outer;
+            return k;
+        }
+        return -1;
+    }
+
+    private static int bucket(double rating) {
+        return BUCKET_OFFSET + (int) Math.floor(rating / BUCKET_WIDTH);
+    }
+
+    private static long key(int bucket, int i) {
+        return ((long) bucket << 32) | (i & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,454 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.CRC32;
+
+/*
+ * Offline analytics over the per-answer log written by AnswerLog.
+ *
+ * The log is cut into byte ranges that are scanned in parallel as fork-join
+ * tasks (a range owns the lines that start inside it); each task folds its
+ * records into a private partial result and partials are merged pairwise on the
+ * way back up. Two passes run over the file:
+ *
+ *   1. session scores  - correct answers per session (after re-grading);
+ *   2. question stats  - per question: answers, share correct (difficulty),
+ *                        timeouts, mean seconds left, and point-biserial
+ *                        discrimination between getting it right and the rest
+ *                        of the session's score.
+ *
+ * When a questions file is given, every logged answer is re-graded against its
+ * current key (matched by Question.getId()), so fixing a wrong key and
+ * re-running shows the corrected history; sessions whose score changes can be
+ * written out with --rescored. Logs from before MCQ ids covered the options
+ * carry the text-only id; those are matched too unless the stem is ambiguous.
+ *
+ * Usage: java AnswerAnalytics [answers.log] [questions.txt] [--threads N] [--rescored FILE]
+ */
+class AnswerAnalytics implements Closeable {
+    private static final int BUFFER = 1 << 20;
+    private static final long MIN_SPLIT = 8L << 20;
+    private static final double SUSPICIOUS_DISCRIMINATION = -0.1;
+    private static final int MIN_ANSWERS_TO_FLAG = 20;
+
+    /** One pass over the log: how records fold into a partial result, and how partials merge. */
+    interface Stage<P> {
+        P newPartial();
+        void accept(P partial, AnswerLog.Record r);
+        P merge(P a, P b);
+    }
+
+    /** Per-question accumulators for pass 2. */
+    static final class QuestionStats {
+        final long id;
+        QuestionType type;
+        long answers, correct, timedOut, secondsLeft;
+        long becameCorrect, becameWrong;
+        double rest, restSq, restWhenCorrect; // "rest" = session score without this answer
+
+        QuestionStats(long id) { this.id = id; }
+
+        double difficulty() { return answers == 0 ? 0 : (double) correct / answers; }
+
+        double timeoutRate() { return answers == 0 ? 0 : (double) timedOut / answers; }
+
+        /** Point-biserial correlation of correctness with the rest score; 0 when undefined. */
+        double discrimination() {
+            long wrong = answers - correct;
+            if (correct == 0 || wrong == 0) return 0;
+            double mean = rest / answers;
+            double sd = Math.sqrt(Math.max(0, restSq / answers - mean * mean));
+            if (sd == 0) return 0;
+            double meanCorrect = restWhenCorrect / correct;
+            double meanWrong = (rest - restWhenCorrect) / wrong;
+            double p = (double) correct / answers;
+            return (meanCorrect - meanWrong) / sd * Math.sqrt(p * (1 - p));
+        }
+
+        void add(QuestionStats o) {
+            if (type == null) type = o.type;
+            answers += o.answers; correct += o.correct; timedOut += o.timedOut; secondsLeft += o.secondsLeft;
+            becameCorrect += o.becameCorrect; becameWrong += o.becameWrong;
+            rest += o.rest; restSq += o.restSq; restWhenCorrect += o.restWhenCorrect;
+        }
+    }
+
+    /** Pass 2 partial: question stats addressed through a primitive id index. */
+    static final class QuestionTable {
+        final LongIntMap index = new LongIntMap(256);
+        final List<QuestionStats> stats = new ArrayList<QuestionStats>();
+
+        QuestionStats get(long id) {
+            int i = index.get(id, -1);
+            if (i >= 0) return stats.get(i);
+            QuestionStats s = new QuestionStats(id);
+            index.put(id, stats.size());
+            stats.add(s);
+            return s;
+        }
+    }
+
+    /** Pass 1 partial: score per session, and (when re-grading) how much it changed. */
+    static final class SessionScores {
+        final LongIntMap score = new LongIntMap(1024);
+        final LongIntMap delta = new LongIntMap(16);
+        long records;
+    }
+
+    private final LogFile log;
+    private final ForkJoinPool pool;
+    private final LongIntMap keyIndex = new LongIntMap(256); // question id -> index into keys
+    private final List<Question> keys = new ArrayList<Question>();
+    private final long splitSize;
+
+    AnswerAnalytics(String logPath, List<Question> currentKeys, int threads) throws IOException {
+        this.log = new LogFile(logPath);
+        this.pool = new ForkJoinPool(threads);
+        if (currentKeys != null) {
+            for (Question q : currentKeys) {
+                if (keyIndex.get(q.getId(), -1) < 0) {
+                    keyIndex.put(q.getId(), keys.size());
+                    keys.add(q);
+                }
+            }
+            // Older logs: MCQ by its text-only id, if no other MCQ shares the stem
+            Map<Long, Integer> byText = new HashMap<Long, Integer>();
+            for (int i = 0; i < keys.size(); i++) {
+                if (!(keys.get(i) instanceof MCQQuestion)) continue;
+                long t = keys.get(i).textId();
+                byText.put(t, byText.containsKey(t) ? -1 : i);
+            }
+            for (Map.Entry<Long, Integer> e : byText.entrySet()) {
+                if (e.getValue() >= 0 && keyIndex.get(e.getKey(), -1) < 0) keyIndex.put(e.getKey(), e.getValue());
+            }
+        }
+        this.splitSize = Math.max(MIN_SPLIT, log.size / (threads * 8L));
+    }
+
+    boolean isRegrading() {
+        return !keys.isEmpty();
+    }
+
+    /** Question with this id in the current bank, or null. */
+    Question question(long id) {
+        int i = keyIndex.get(id, -1);
+        return i < 0 ? null : keys.get(i);
+    }
+
+    SessionScores sessionScores() throws IOException {
+        return run(new Stage<SessionScores>() {
+            @Override public SessionScores newPartial() { return new SessionScores(); }
+
+            @Override public void accept(SessionScores p, AnswerLog.Record r) {
+                p.records++;
+                boolean logged = r.correct;
+                regrade(r);
+                p.score.add(r.session, r.correct ? 1 : 0);
+                if (r.correct != logged) p.delta.add(r.session, r.correct ? 1 : -1);
+            }
+
+            @Override public SessionScores merge(SessionScores a, SessionScores b) {
+                if (a.score.size() < b.score.size()) { SessionScores t = a; a = b; b = t; }
+                b.score.addAllTo(a.score);
+                b.delta.addAllTo(a.delta);
+                a.records += b.records;
+                return a;
+            }
+        });
+    }
+
+    List<QuestionStats> questionStats(final SessionScores sessions) throws IOException {
+        QuestionTable table = run(new Stage<QuestionTable>() {
+            @Override public QuestionTable newPartial() { return new QuestionTable(); }
+
+            @Override public void accept(QuestionTable p, AnswerLog.Record r) {
+                boolean logged = r.correct;
+                regrade(r);
+                QuestionStats s = p.get(r.questionId);
+                s.type = r.type;
+                s.answers++;
+                if (r.correct) s.correct++;
+                if (r.timedOut) s.timedOut++;
+                s.secondsLeft += r.secondsLeft;
+                if (r.correct && !logged) s.becameCorrect++;
+                if (!r.correct && logged) s.becameWrong++;
+                double rest = sessions.score.get(r.session, 0) - (r.correct ? 1 : 0);
+                s.rest += rest;
+                s.restSq += rest * rest;
+                if (r.correct) s.restWhenCorrect += rest;
+            }
+
+            @Override public QuestionTable merge(QuestionTable a, QuestionTable b) {
+                for (QuestionStats s : b.stats) a.get(s.id).add(s);
+                return a;
+            }
+        });
+        return table.stats;
+    }
+
+    /** Replaces the logged verdict with the current key's, where the question still exists. */
+    private void regrade(AnswerLog.Record r) {
+        if (r.timedOut || keys.isEmpty()) return;
+        Question q = question(r.questionId);
+        if (q != null && q.getType() == r.type) r.correct = q.grade(r.answer);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private <P> P run(Stage<P> stage) throws IOException {
+        try (FileChannel ch = FileChannel.open(Paths.get(log.name), StandardOpenOption.READ)) {
+            return pool.invoke(new Scan<P>(stage, ch, 0, ch.size()));
+        }
+    }
+
+    /** Scans the lines starting in [from, to), splitting in halves above splitSize. */
+    private final class Scan<P> extends RecursiveTask<P> {
+        private final Stage<P> stage;
+        private final FileChannel ch;
+        private final long from, to;
+
+        Scan(Stage<P> stage, FileChannel ch, long from, long to) {
+            this.stage = stage; this.ch = ch; this.from = from; this.to = to;
+        }
+
+        @Override
+        protected P compute() {
+            if (to - from > splitSize) {
+                long mid = from + (to - from) / 2;
+                Scan<P> left = new Scan<P>(stage, ch, from, mid);
+                left.fork();
+                P right = new Scan<P>(stage, ch, mid, to).compute();
+                return stage.merge(left.join(), right);
+            }
+            try {
+                return scan();
+            } catch (IOException e) {
+                throw new IllegalStateException("Reading " + log.name + ": " + e.getMessage(), e);
+            }
+        }
+
+        private P scan() throws IOException {
+            P partial = stage.newPartial();
+            AnswerLog.Record r = new AnswerLog.Record();
+            CRC32 crc = new CRC32();
+            ByteBuffer buf = ByteBuffer.allocate((int) Math.min(BUFFER, Math.max(4096, to - from + 4096)));
+            long bufStart = from > 0 ? from - 1 : 0; // file offset of buf[0]
+            boolean skipPartial = from > 0;          // the line straddling from belongs to the previous range
+            int lineStart = 0;
+            while (true) {
+                int filled = buf.position();
+                int n = ch.read(buf, bufStart + filled);
+                boolean eof = n < 0;
+                byte[] b = buf.array();
+                int end = buf.position();
+                for (int i = filled; i < end; i++) {
+                    if (b[i] != '\n') continue;
+                    if (skipPartial) {
+                        skipPartial = false;
+                    } else {
+                        if (bufStart + lineStart >= to) return partial;
+                        if (AnswerLog.parse(b, lineStart, i, r, crc)) stage.accept(partial, r);
+                    }
+                    lineStart = i + 1;
+                }
+                if (skipPartial) lineStart = end; // still inside the previous range's line
+                // A torn last line (no newline) is ignored, as the journal would truncate it.
+                if (eof || bufStart + lineStart >= to && !skipPartial) return partial;
+                if (lineStart == 0 && end == buf.capacity()) {
+                    ByteBuffer bigger = ByteBuffer.allocate(buf.capacity() * 2); // a very long line
+                    buf.flip();
+                    bigger.put(buf);
+                    buf = bigger;
+                } else {
+                    buf.limit(end).position(lineStart);
+                    buf.compact();
+                    bufStart += lineStart;
+                    lineStart = 0;
+                }
+            }
+        }
+    }
+
+    // ---- report ----
+
+    void report(SessionScores sessions, List<QuestionStats> stats, PrintStream out) {
+        Collections.sort(stats, new Comparator<QuestionStats>() {
+            @Override public int compare(QuestionStats a, QuestionStats b) {
+                return Double.compare(a.difficulty(), b.difficulty());
+            }
+        });
+        long regraded = 0;
+        for (QuestionStats s : stats) regraded += s.becameCorrect + s.becameWrong;
+        out.printf("answers=%d sessions=%d questions=%d%s%n", sessions.records, sessions.score.size(), stats.size(),
+                isRegrading() ? " regraded=" + regraded + " sessionsRescored=" + sessions.delta.countNonZero() : "");
+        out.printf("%-16s %-4s %8s %8s %8s %8s %8s %8s  %s%n",
+                "question", "type", "answers", "correct", "timeout", "avgLeft", "discrim", "changed", "text");
+        for (QuestionStats s : stats) {
+            Question q = question(s.id);
+            StringBuilder id = new StringBuilder(16);
+            AnswerLog.appendHex(id, s.id);
+            boolean suspicious = s.answers >= MIN_ANSWERS_TO_FLAG && s.discrimination() < SUSPICIOUS_DISCRIMINATION;
+            out.printf("%-16s %-4s %8d %7.1f%% %7.1f%% %8.1f %8.3f %8d  %s%s%n", id, s.type, s.answers,
+                    100 * s.difficulty(), 100 * s.timeoutRate(), (double) s.secondsLeft / s.answers,
+                    s.discrimination(), s.becameCorrect + s.becameWrong,
+                    suspicious ? "[check key] " : "", q == null ? "" : oneLine(q.getQuestionText()));
+        }
+    }
+
+    /** Writes "session TAB newScore TAB change" for every session whose score changed. */
+    static void writeRescored(SessionScores sessions, String path) throws IOException {
+        try (BufferedWriter w = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8)) {
+            LongIntMap d = sessions.delta;
+            for (int i = 0; i < d.keys.length; i++) {
+                if (d.used[i] && d.values[i] != 0) {
+                    long id = d.keys[i];
+                    w.write(id + "\t" + sessions.score.get(id, 0) + "\t" + (d.values[i] > 0 ? "+" : "") + d.values[i]);
+                    w.newLine();
+                }
+            }
+        }
+    }
+
+    private static String oneLine(String s) {
+        String t = s.replace('\n', ' ').replace('\r', ' ');
+        return t.length() > 60 ? t.substring(0, 57) + "..." : t;
+    }
+
+    /** The log file and its size, fixed for the whole run. */
+    private static final class LogFile {
+        final String name;
+        final long size;
+
+        LogFile(String name) throws IOException {
+            this.name = name;
+            this.size = Files.size(Paths.get(name));
+        }
+    }
+
+    /** Open-addressing long -> int map (no boxing); enough for tens of millions of sessions. */
+    static final class LongIntMap {
+        long[] keys;
+        int[] values;
+        boolean[] used;
+        private int size;
+
+        LongIntMap(int expected) {
+            int cap = Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+            keys = new long[cap];
+            values = new int[cap];
+            used = new boolean[cap];
+        }
+
+        int size() { return size; }
+
+        int get(long key, int missing) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); used[i]; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+            }
+            return missing;
+        }
+
+        void put(long key, int value) {
+            int i = find(key);
+            values[i] = value;
+        }
+
+        void add(long key, int delta) {
+            int i = find(key);
+            values[i] += delta;
+        }
+
+        /** Adds every entry of this map into other. */
+        void addAllTo(LongIntMap other) {
+            for (int i = 0; i < keys.length; i++) if (used[i]) other.add(keys[i], values[i]);
+        }
+
+        int countNonZero() {
+            int n = 0;
+            for (int i = 0; i < keys.length; i++) if (used[i] && values[i] != 0) n++;
+            return n;
+        }
+
+        /** Slot holding key, inserted with value 0 if absent. */
+        private int find(long key) {
+            if ((size + 1) * 2 > keys.length) grow();
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (used[i]) {
+                if (keys[i] == key) return i;
+                i = (i + 1) & mask;
+            }
+            used[i] = true;
+            keys[i] = key;
+            values[i] = 0;
+            size++;
+            return i;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String logPath = QuizSwingApp.ANSWERS_FILE;
+        String questionsPath = null;
+        String rescored = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> positional = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--threads".equals(args[i]) && i + 1 < args.length) threads = Integer.parseInt(args[++i]);
+            else if ("--rescored".equals(args[i]) && i + 1 < args.length) rescored = args[++i];
+            else positional.add(args[i]);
+        }
+        if (positional.size() > 0) logPath = positional.get(0);
+        if (positional.size() > 1) questionsPath = positional.get(1);
+
+        List<Question> keys = questionsPath == null ? null : QuestionLoader.loadFromFile(questionsPath);
+        AnswerAnalytics a = new AnswerAnalytics(logPath, keys, Math.max(1, threads));
+        long t0 = System.nanoTime();
+        SessionScores sessions = a.sessionScores();
+        List<QuestionStats> stats = a.questionStats(sessions);
+        double secs = (System.nanoTime() - t0) / 1e9;
+        a.report(sessions, stats, System.out);
+        System.out.printf("%n%d MB in %.2fs on %d threads%n", a.log.size >> 20, secs, a.pool.getParallelism());
+        if (rescored != null) {
+            writeRescored(sessions, rescored);
+            System.out.println("Rescored sessions written to " + rescored);
+        }
+        a.close();
+    }
+}
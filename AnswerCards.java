@@ -0,0 +1,90 @@
+import javax.swing.ButtonGroup;
+import javax.swing.ButtonModel;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JRadioButton;
+import javax.swing.JTextField;
+import java.awt.CardLayout;
+import java.awt.GridLayout;
+
+/*
+ * The answer area of the quiz screen: one card per QuestionType (four MCQ
+ * options, True/False, a text field for fill-in-the-blank), each built once
+ * with its own permanent ButtonGroup and switched with a CardLayout. Showing a
+ * question only updates option texts and clears the selection; no component is
+ * created, added or removed, so the only layout work is re-measuring buttons
+ * whose text changed.
+ */
+class AnswerCards extends JPanel {
+    private final CardLayout cards = new CardLayout();
+    private final ButtonGroup mcqGroup = new ButtonGroup();
+    private final JRadioButton[] mcqButtons = new JRadioButton[4];
+    private final ButtonGroup tfGroup = new ButtonGroup();
+    private final JRadioButton tfTrue = new JRadioButton("True");
+    private final JRadioButton tfFalse = new JRadioButton("False");
+    private final JTextField fibField = new JTextField();
+    private QuestionType shown;
+
+    AnswerCards() {
+        setLayout(cards);
+
+        JPanel mcq = card();
+        for (int i = 0; i < mcqButtons.length; i++) {
+            mcqButtons[i] = new JRadioButton();
+            mcqButtons[i].setActionCommand(String.valueOf(i + 1));
+            mcqGroup.add(mcqButtons[i]);
+            mcq.add(mcqButtons[i]);
+        }
+        add(mcq, QuestionType.MCQ.name());
+
+        JPanel tf = card();
+        tfGroup.add(tfTrue);
+        tfGroup.add(tfFalse);
+        tf.add(tfTrue);
+        tf.add(tfFalse);
+        add(tf, QuestionType.TF.name());
+
+        JPanel fib = card();
+        fib.add(new JLabel("Type your answer:"));
+        fib.add(fibField);
+        add(fib, QuestionType.FIB.name());
+    }
+
+    /** Same grid as the single answer panel this replaces, so the screen looks unchanged. */
+    private static JPanel card() {
+        return new JPanel(new GridLayout(6, 1, 6, 6));
+    }
+
+    /** Puts q's options on its card, with nothing selected, and brings that card to the front. */
+    void show(Question q) {
+        QuestionType type = q.getType();
+        if (type == QuestionType.MCQ) {
+            String[] opts = ((MCQQuestion) q).getOptions();
+            for (int i = 0; i < mcqButtons.length; i++) mcqButtons[i].setText((i + 1) + ". " + opts[i]);
+            mcqGroup.clearSelection();
+        } else if (type == QuestionType.TF) {
+            tfGroup.clearSelection();
+        } else {
+            fibField.setText("");
+        }
+        if (type != shown) {
+            cards.show(this, type.name());
+            shown = type;
+        }
+    }
+
+    /** The answer entered on the card for type, or null if none: "1".."4", "True"/"False" or the text. */
+    String selectedAnswer(QuestionType type) {
+        if (type == QuestionType.MCQ) {
+            ButtonModel sel = mcqGroup.getSelection();
+            return sel == null ? null : sel.getActionCommand();
+        } else if (type == QuestionType.TF) {
+            if (tfTrue.isSelected()) return "True";
+            if (tfFalse.isSelected()) return "False";
+            return null;
+        } else {
+            String t = fibField.getText();
+            return t == null || t.trim().isEmpty() ? null : t.trim();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+import java.io.Closeable;
+import java.util.zip.CRC32;
+
+/*
+ * Per-answer event log (answers.log), one Journal record per graded answer:
+ *
+ *   epochMillis TAB session TAB questionId TAB type TAB correct TAB timedOut TAB secondsLeft TAB answer
+ *
+ * questionId is Question.getId() as 16 hex digits, correct and timedOut are 0/1,
+ * and answer is the raw text with backslash, tab, CR and LF escaped as \\ \t \r \n
+ * (empty when the question timed out). Records go through the journal's group
+ * commit with an interval fsync: losing the last second of answers in a crash
+ * costs analytics, not scores.
+ *
+ * parse() reads a record straight out of a byte buffer, checksum included, so
+ * AnswerAnalytics can stream multi-GB logs without building a String per line.
+ */
+class AnswerLog implements Closeable {
+    private static final long SYNC_INTERVAL_MS = 1000;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final QuestionType[] TYPES = QuestionType.values();
+
+    /** One decoded record; reused by readers, so copy anything kept. */
+    static final class Record {
+        long time;
+        long session;
+        long questionId;
+        QuestionType type;
+        boolean correct;
+        boolean timedOut;
+        int secondsLeft;
+        final StringBuilder answer = new StringBuilder();
+        private int pos; // parse cursor; -1 once a field is malformed
+    }
+
+    private final Journal journal;
+
+    AnswerLog(String path) {
+        this.journal = new Journal(path, Journal.Durability.SYNC_INTERVAL, SYNC_INTERVAL_MS, Metrics.ANSWER_LOG_WRITE);
+    }
+
+    /** Queues one graded answer, graded at epochMillis by the caller's clock; never blocks on I/O. */
+    void record(long epochMillis, long session, Question q, String answer, boolean correct, boolean timedOut,
+                int secondsLeft) {
+        StringBuilder sb = new StringBuilder(64 + (answer == null ? 0 : answer.length()));
+        sb.append(epochMillis).append('\t')
+          .append(session).append('\t');
+        appendHex(sb, q.getId());
+        sb.append('\t').append(q.getType())
+          .append('\t').append(correct ? '1' : '0')
+          .append('\t').append(timedOut ? '1' : '0')
+          .append('\t').append(secondsLeft)
+          .append('\t');
+        if (answer != null) escape(answer, sb);
+        journal.append(sb.toString());
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+    }
+
+    static void appendHex(StringBuilder sb, long v) {
+        for (int shift = 60; shift >= 0; shift -= 4) sb.append(HEX[(int) (v >>> shift) & 0xF]);
+    }
+
+    static void escape(CharSequence s, StringBuilder out) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\': out.append("\\\\"); break;
+                case '\t': out.append("\\t"); break;
+                case '\r': out.append("\\r"); break;
+                case '\n': out.append("\\n"); break;
+                default: out.append(c);
+            }
+        }
+    }
+
+    /**
+     * Decodes the journal line b[from, to) (without its line break) into r. Returns
+     * false for lines that are damaged (checksum mismatch) or not answer records.
+     * The crc instance is scratch space owned by the caller.
+     */
+    static boolean parse(byte[] b, int from, int to, Record r, CRC32 crc) {
+        if (to > from && b[to - 1] == '\r') to--;
+        if (to - from < 9 || b[to - 9] != '\t') return false;
+        long expected = 0;
+        for (int i = to - 8; i < to; i++) {
+            int d = Character.digit(b[i], 16);
+            if (d < 0) return false;
+            expected = (expected << 4) | d;
+        }
+        to -= 9;
+        crc.reset();
+        crc.update(b, from, to - from);
+        if (crc.getValue() != expected) return false;
+
+        r.pos = from;
+        long time = number(b, r, to);
+        long session = number(b, r, to);
+        long id = hex(b, r, to);
+        QuestionType type = type(b, r, to);
+        long correct = number(b, r, to);
+        long timedOut = number(b, r, to);
+        long left = number(b, r, to);
+        if (r.pos < 0 || type == null) return false;
+        r.time = time;
+        r.session = session;
+        r.questionId = id;
+        r.type = type;
+        r.correct = correct == 1;
+        r.timedOut = timedOut == 1;
+        r.secondsLeft = (int) left;
+        r.answer.setLength(0);
+        unescapeUtf8(b, r.pos, to, r.answer);
+        return true;
+    }
+
+    // Field scanners: read from r.pos up to the next tab and leave r.pos after it.
+
+    private static long number(byte[] b, Record r, int to) {
+        int i = r.pos;
+        if (i < 0) return -1;
+        long v = 0;
+        int start = i;
+        while (i < to && b[i] != '\t') {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9 || i - start > 18) { r.pos = -1; return -1; }
+            v = v * 10 + d;
+            i++;
+        }
+        if (i == start || i == to) { r.pos = -1; return -1; }
+        r.pos = i + 1;
+        return v;
+    }
+
+    private static long hex(byte[] b, Record r, int to) {
+        int i = r.pos;
+        if (i < 0 || i + 16 >= to || b[i + 16] != '\t') { r.pos = -1; return -1; }
+        long v = 0;
+        for (int end = i + 16; i < end; i++) {
+            int d = Character.digit(b[i], 16);
+            if (d < 0) { r.pos = -1; return -1; }
+            v = (v << 4) | d;
+        }
+        r.pos = i + 1;
+        return v;
+    }
+
+    private static QuestionType type(byte[] b, Record r, int to) {
+        int i = r.pos;
+        if (i < 0) return null;
+        int end = i;
+        while (end < to && b[end] != '\t') end++;
+        if (end == to) { r.pos = -1; return null; }
+        r.pos = end + 1;
+        for (QuestionType t : TYPES) {
+            String name = t.name();
+            if (name.length() != end - i) continue;
+            int k = 0;
+            while (k < name.length() && name.charAt(k) == b[i + k]) k++;
+            if (k == name.length()) return t;
+        }
+        r.pos = -1;
+        return null;
+    }
+
+    /** Decodes UTF-8 b[from, to) into out, undoing escape(); malformed bytes become U+FFFD. */
+    static void unescapeUtf8(byte[] b, int from, int to, StringBuilder out) {
+        boolean backslash = false;
+        int i = from;
+        while (i < to) {
+            int c = b[i] & 0xFF;
+            int cp;
+            int len;
+            if (c < 0x80) { cp = c; len = 1; }
+            else if (c >= 0xC2 && c < 0xE0) { cp = c & 0x1F; len = 2; }
+            else if (c >= 0xE0 && c < 0xF0) { cp = c & 0x0F; len = 3; }
+            else if (c >= 0xF0 && c < 0xF5) { cp = c & 0x07; len = 4; }
+            else { cp = 0xFFFD; len = 1; }
+            if (len > 1) {
+                if (i + len > to) { cp = 0xFFFD; len = to - i; }
+                else {
+                    for (int k = 1; k < len; k++) {
+                        int cc = b[i + k] & 0xFF;
+                        if ((cc & 0xC0) != 0x80) { cp = 0xFFFD; len = k; break; }
+                        cp = (cp << 6) | (cc & 0x3F);
+                    }
+                }
+            }
+            if (cp > 0x10FFFF) cp = 0xFFFD;
+            i += len;
+            if (backslash) {
+                backslash = false;
+                switch (cp) {
+                    case 't': out.append('\t'); continue;
+                    case 'r': out.append('\r'); continue;
+                    case 'n': out.append('\n'); continue;
+                    case '\\': out.append('\\'); continue;
+                    default: out.append('\\');
+                }
+            } else if (cp == '\\') {
+                backslash = true;
+                continue;
+            }
+            out.appendCodePoint(cp);
+        }
+        if (backslash) out.append('\\');
+    }
+}
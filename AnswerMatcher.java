@@ -0,0 +1,355 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * Configurable matcher for fill-in-the-blank answers. Everything that depends
+ * only on the answer key is done once, when the question is loaded:
+ *
+ *   - with synonyms enabled, the key may list accepted answers separated by '|'
+ *     ("extends | extend"); otherwise, and for keys like "||" that list nothing,
+ *     the whole key is the one answer;
+ *   - each alternative is normalized: compatibility-decomposed (NFKD) with its
+ *     combining marks removed (é -> e, ﬁ -> fi), fully case folded (ß -> ss) and
+ *     whitespace runs collapsed; with foldPunctuation, punctuation is treated as
+ *     whitespace too, except in keys that look like code ("C++", "start()",
+ *     "System.out") or are nothing but punctuation ("//");
+ *   - with maxEdits > 0, a bit-parallel (Myers/Hyyrö) edit-distance automaton is
+ *     prepared for each alternative, so a small typo ("polymorphsm") can be
+ *     accepted. Keys longer than 64 chars use a banded Levenshtein instead. Keys
+ *     that are code, Java keywords, contain digits, or are within that many
+ *     edits of a keyword ("throw" / "throws", "null" / "full") are matched exactly.
+ *
+ * Grading then normalizes the player's input into a per-thread scratch buffer
+ * and runs the automata. ASCII input is normalized in place without allocating;
+ * other input goes through the same Normalizer folding as the key, and the last
+ * folded answer is kept per thread, since re-grading sees the same answer often.
+ *
+ * Options.EXACT reproduces the original rule (trimmed, case-insensitive equality
+ * with the whole key). The process-wide default comes from system properties:
+ * quiz.fib.exact, quiz.fib.synonyms, quiz.fib.foldAccents, quiz.fib.foldPunctuation,
+ * quiz.fib.maxEdits. Synonyms, punctuation folding and typo tolerance are off
+ * unless asked for, since existing banks were written for near-exact matching.
+ */
+class AnswerMatcher {
+    /** Matching policy; immutable. */
+    static final class Options {
+        final boolean exact;
+        final boolean foldAccents;
+        final boolean foldPunctuation;
+        final boolean synonyms;
+        final int maxEdits; // upper bound; shorter keys get fewer (see allowedEdits)
+
+        Options(boolean exact, boolean foldAccents, boolean foldPunctuation, boolean synonyms, int maxEdits) {
+            this.exact = exact;
+            this.foldAccents = foldAccents;
+            this.foldPunctuation = foldPunctuation;
+            this.synonyms = synonyms;
+            this.maxEdits = Math.max(0, maxEdits);
+        }
+
+        /** The original behaviour: trimmed, case-insensitive, whole key. */
+        static final Options EXACT = new Options(true, false, false, false, 0);
+
+        /** Default for questions built without explicit options. */
+        static final Options DEFAULT = fromSystemProperties();
+
+        static Options fromSystemProperties() {
+            return new Options(
+                    Boolean.getBoolean("quiz.fib.exact"),
+                    Boolean.parseBoolean(System.getProperty("quiz.fib.foldAccents", "true")),
+                    Boolean.getBoolean("quiz.fib.foldPunctuation"),
+                    Boolean.getBoolean("quiz.fib.synonyms"),
+                    Integer.getInteger("quiz.fib.maxEdits", 0));
+        }
+    }
+
+    private static final int MAX_BIT_PARALLEL = 64;
+    private static final int INITIAL_SCRATCH = 128;
+    /** Punctuation that may appear in prose answers; any other symbol makes a key code. */
+    private static final String PROSE_PUNCTUATION = ",;:!?'\"-.";
+
+    /** Java keywords and literals: answers in their own right, never typos of each other. */
+    private static final String[] KEYWORDS = {
+        "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+        "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+        "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+        "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+        "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void",
+        "volatile", "while", "true", "false", "null", "var", "record", "yield"
+    };
+
+    private static final ThreadLocal<char[]> SCRATCH = new ThreadLocal<char[]>() {
+        @Override protected char[] initialValue() { return new char[INITIAL_SCRATCH]; }
+    };
+    private static final ThreadLocal<String[]> LAST_FOLDED = new ThreadLocal<String[]>() {
+        @Override protected String[] initialValue() { return new String[2]; } // { input, fold(input) }
+    };
+    private static final ThreadLocal<int[][]> ROWS = new ThreadLocal<int[][]>() {
+        @Override protected int[][] initialValue() { return new int[2][INITIAL_SCRATCH]; }
+    };
+
+    /** One accepted alternative, normalized, with its precomputed automaton. */
+    private static final class Alternative {
+        final char[] key;
+        final boolean literal; // punctuation kept (the key is nothing but punctuation, e.g. "//")
+        final int edits;
+        final char[] peqChars; // distinct chars of key (Myers pattern table)
+        final long[] peqMasks;
+
+        Alternative(char[] key, boolean literal, int edits) {
+            this.key = key;
+            this.literal = literal;
+            this.edits = edits;
+            if (edits > 0 && key.length > 0 && key.length <= MAX_BIT_PARALLEL) {
+                char[] chars = new char[key.length];
+                long[] masks = new long[key.length];
+                int n = 0;
+                for (int i = 0; i < key.length; i++) {
+                    int j = 0;
+                    while (j < n && chars[j] != key[i]) j++;
+                    if (j == n) chars[n++] = key[i];
+                    masks[j] |= 1L << i;
+                }
+                peqChars = Arrays.copyOf(chars, n);
+                peqMasks = Arrays.copyOf(masks, n);
+            } else {
+                peqChars = null;
+                peqMasks = null;
+            }
+        }
+    }
+
+    private final Options options;
+    private final Options literal;         // options without punctuation folding
+    private final String key;              // trimmed raw key (EXACT mode)
+    private final String primary;
+    private final Alternative[] alternatives;
+    private final boolean anyLiteral;
+
+    AnswerMatcher(String answer, Options options) {
+        this.options = options;
+        this.literal = new Options(options.exact, options.foldAccents, false, options.synonyms, options.maxEdits);
+        this.key = answer == null ? "" : answer.trim();
+        String[] listed = alternatives(key, options);
+        this.primary = listed[0];
+        if (options.exact) {
+            alternatives = new Alternative[0];
+            anyLiteral = false;
+            return;
+        }
+        List<Alternative> alts = new ArrayList<Alternative>();
+        boolean lit = false;
+        for (String alt : listed) {
+            if (options.foldAccents) alt = fold(alt);
+            char[] buf = new char[alt.length()];
+            boolean code = looksLikeCode(alt);
+            boolean keepPunctuation = options.foldPunctuation && (code || normalize(alt, buf, options) == 0);
+            int n = normalize(alt, buf, keepPunctuation ? literal : options);
+            if (n == 0 && !alt.trim().isEmpty()) continue;
+            char[] norm = Arrays.copyOf(buf, n);
+            alts.add(new Alternative(norm, keepPunctuation, code ? 0 : allowedEdits(norm, options.maxEdits)));
+            lit |= keepPunctuation;
+        }
+        alternatives = alts.toArray(new Alternative[0]);
+        anyLiteral = lit;
+    }
+
+    /** The first listed alternative, for feedback ("Correct answer: ..."). */
+    String primary() {
+        return primary;
+    }
+
+    /** The accepted answers the key lists: its non-blank '|'-separated parts, or the whole key. */
+    static String[] alternatives(String key, Options options) {
+        if (!options.synonyms || options.exact || key.indexOf('|') < 0) return new String[] { key };
+        List<String> parts = new ArrayList<String>();
+        for (String part : key.split("\\|")) {
+            if (!part.trim().isEmpty()) parts.add(part.trim());
+        }
+        return parts.isEmpty() ? new String[] { key } : parts.toArray(new String[0]);
+    }
+
+    boolean matches(CharSequence input) {
+        if (input == null) return false;
+        if (options.exact) {
+            int from = Question.trimStart(input, 0, input.length());
+            int to = Question.trimEnd(input, from, input.length());
+            return Question.equalsIgnoreCase(key, input, from, to);
+        }
+        if (options.foldAccents && !isAscii(input)) input = foldCached(input.toString());
+        int len = input.length();
+        char[] buf = SCRATCH.get();
+        if (buf.length < 2 * len) {
+            buf = new char[Math.max(2 * len, buf.length * 2)];
+            SCRATCH.set(buf);
+        }
+        int n = normalize(input, buf, options);
+        int litN = -1; // input normalized with punctuation kept, at buf[len...], on demand
+        for (Alternative alt : alternatives) {
+            if (!alt.literal) {
+                if (within(alt, buf, 0, n)) return true;
+            } else {
+                if (litN < 0) litN = normalize(input, buf, len, literal);
+                if (within(alt, buf, len, litN)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Edits tolerated for a normalized key: none for short keys or keys with digits
+     * (a different year or number is a different answer), one up to 7 chars, then
+     * maxEdits; none if the key is a keyword or that many edits reach one.
+     */
+    static int allowedEdits(char[] key, int maxEdits) {
+        for (char c : key) if (Character.isDigit(c)) return 0;
+        int k = key.length <= 3 ? 0 : key.length <= 7 ? Math.min(1, maxEdits) : maxEdits;
+        for (int i = 0; i < KEYWORDS.length && k > 0; i++) {
+            char[] word = KEYWORDS[i].toCharArray();
+            if (Math.abs(word.length - key.length) <= k && banded(key, word, 0, word.length, k) <= k) k = 0;
+        }
+        return k;
+    }
+
+    /** True if s has symbols prose does not use, or a '.' joined to a word ("System.out"). */
+    static boolean looksLikeCode(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isLetterOrDigit(c) || Character.isWhitespace(c)) continue;
+            if (c == '.' && i + 1 < s.length() && Character.isLetterOrDigit(s.charAt(i + 1))) return true;
+            if (PROSE_PUNCTUATION.indexOf(c) < 0) return true;
+        }
+        return false;
+    }
+
+    /** NFKD without combining marks, then full case folding: "Straße" -> "strasse". */
+    static String fold(String s) {
+        String t = Normalizer.normalize(s, Normalizer.Form.NFKD).toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+        t = Normalizer.normalize(t, Normalizer.Form.NFKD); // case mapping may yield precomposed letters
+        StringBuilder sb = new StringBuilder(t.length());
+        for (int i = 0; i < t.length(); i++) {
+            int type = Character.getType(t.charAt(i));
+            if (type != Character.NON_SPACING_MARK && type != Character.ENCLOSING_MARK) sb.append(t.charAt(i));
+        }
+        return sb.toString();
+    }
+
+    private static String foldCached(String input) {
+        String[] last = LAST_FOLDED.get();
+        if (!input.equals(last[0])) {
+            last[1] = fold(input);
+            last[0] = input;
+        }
+        return last[1];
+    }
+
+    private static boolean isAscii(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) if (s.charAt(i) >= 0x80) return false;
+        return true;
+    }
+
+    /**
+     * Writes the normalized form of s into out (out.length >= s.length()); returns its
+     * length. With foldAccents, non-ASCII s must already have been through fold().
+     */
+    static int normalize(CharSequence s, char[] out, Options o) {
+        return normalize(s, out, 0, o);
+    }
+
+    private static int normalize(CharSequence s, char[] out, int at, Options o) {
+        int n = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            boolean separator = Character.isWhitespace(c) || c <= ' '
+                    || (o.foldPunctuation && !Character.isLetterOrDigit(c));
+            if (separator) {
+                pendingSpace = n > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                out[at + n++] = ' ';
+                pendingSpace = false;
+            }
+            out[at + n++] = Character.toLowerCase(Character.toUpperCase(c));
+        }
+        return n;
+    }
+
+    private static boolean within(Alternative alt, char[] text, int off, int n) {
+        char[] key = alt.key;
+        int m = key.length;
+        int k = alt.edits;
+        if (Math.abs(m - n) > k) return false;
+        if (k == 0 || m == 0) {
+            if (m != n) return false;
+            for (int i = 0; i < m; i++) if (key[i] != text[off + i]) return false;
+            return true;
+        }
+        return alt.peqChars != null ? myers(alt, text, off, n) <= k : banded(key, text, off, n, k) <= k;
+    }
+
+    /** Levenshtein distance via Hyyrö's bit-parallel formulation of Myers' algorithm (m <= 64). */
+    private static int myers(Alternative alt, char[] text, int off, int n) {
+        int m = alt.key.length;
+        long last = 1L << (m - 1);
+        long pv = m == 64 ? -1L : (1L << m) - 1;
+        long mv = 0;
+        int score = m;
+        for (int j = 0; j < n; j++) {
+            long eq = 0;
+            char c = text[off + j];
+            char[] chars = alt.peqChars;
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] == c) { eq = alt.peqMasks[i]; break; }
+            }
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & last) != 0) score++;
+            else if ((mh & last) != 0) score--;
+            ph = (ph << 1) | 1;
+            mh = mh << 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+        }
+        return score;
+    }
+
+    /** Levenshtein distance restricted to a diagonal band of width 2k+1; returns k+1 if larger. */
+    private static int banded(char[] key, char[] text, int off, int n, int k) {
+        int m = key.length;
+        int[][] rows = ROWS.get();
+        if (rows[0].length < n + 1) {
+            rows = new int[2][Math.max(n + 1, rows[0].length * 2)];
+            ROWS.set(rows);
+        }
+        int[] prev = rows[0], cur = rows[1];
+        int big = k + 1;
+        for (int j = 0; j <= n; j++) prev[j] = j <= k ? j : big;
+        for (int i = 1; i <= m; i++) {
+            int lo = Math.max(1, i - k), hi = Math.min(n, i + k);
+            cur[0] = i <= k ? i : big;
+            if (lo > 1) cur[lo - 1] = big;
+            int rowMin = cur[0];
+            for (int j = lo; j <= hi; j++) {
+                int cost = key[i - 1] == text[off + j - 1] ? 0 : 1;
+                int v = prev[j - 1] + cost;
+                int up = prev[j] + 1;
+                if (up < v) v = up;
+                int left = cur[j - 1] + 1;
+                if (left < v) v = left;
+                cur[j] = Math.min(v, big);
+                if (cur[j] < rowMin) rowMin = cur[j];
+            }
+            if (hi < n) cur[hi + 1] = big;
+            if (rowMin > k) return big;
+            int[] t = prev; prev = cur; cur = t;
+        }
+        return prev[n];
+    }
+}
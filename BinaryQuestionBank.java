@@ -0,0 +1,266 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * Compiled, memory-mapped form of questions.txt. The text file stays the source
+ * of truth: openFor() recompiles "<questions file>.bin" whenever the text file's
+ * modification time or length no longer match the values recorded in the header.
+ *
+ * Layout (big-endian):
+ *   header   magic "QBNK" (int), version (short), reserved (short), count (int),
+ *            source mtime millis (long), source length (long), reserved (int)   = 32 bytes
+ *   offsets  count x long, absolute file offset of each entry
+ *   entries  payload length (int), type tag (byte, QuestionType ordinal),
+ *            tag count (short) and tags (strings), then
+ *              MCQ: question, option1..option4 (strings), correct index (int)
+ *              TF:  question (string), correct (byte 0/1)
+ *              FIB: question, answer (strings)
+ *            where every string is a length-prefixed (int) UTF-8 byte run.
+ *
+ * Questions are decoded lazily, one at a time, by index. Version 1 files (no
+ * tags) are recompiled on open.
+ */
+class BinaryQuestionBank implements QuestionBank {
+    static final int MAGIC = 0x51424E4B; // "QBNK"
+    static final short VERSION = 2;
+    static final int HEADER_SIZE = 32;
+    static final String SUFFIX = ".bin";
+
+    private static final QuestionType[] TYPES = QuestionType.values();
+
+    private final MappedByteBuffer buf;
+    private final int count;
+    private final long sourceMtime;
+    private final long sourceLength;
+
+    private BinaryQuestionBank(MappedByteBuffer buf) throws IOException {
+        this.buf = buf;
+        if (buf.capacity() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+            throw new IOException("Not a compiled question bank");
+        }
+        if (buf.getShort(4) != VERSION) {
+            throw new IOException("Unsupported question bank version " + buf.getShort(4));
+        }
+        this.count = buf.getInt(8);
+        this.sourceMtime = buf.getLong(12);
+        this.sourceLength = buf.getLong(20);
+        if (count < 0 || HEADER_SIZE + 8L * count > buf.capacity()) {
+            throw new IOException("Corrupt question bank header (count " + count + ")");
+        }
+    }
+
+    @Override
+    public int size() { return count; }
+
+    long getSourceMtime() { return sourceMtime; }
+    long getSourceLength() { return sourceLength; }
+
+    /** Type of question i, read from its tag without decoding the payload. */
+    @Override
+    public QuestionType typeAt(int i) {
+        return TYPES[buf.get((int) offsetOf(i) + 4)];
+    }
+
+    /** Decodes question i (0-based). Safe to call from several threads. */
+    @Override
+    public Question get(int i) {
+        ByteBuffer b = buf.duplicate();
+        b.position((int) offsetOf(i) + 4);
+        QuestionType type = TYPES[b.get()];
+        String[] tags = readTags(b);
+        String q = readString(b);
+        switch (type) {
+            case MCQ:
+                String[] opts = new String[4];
+                for (int k = 0; k < 4; k++) opts[k] = readString(b);
+                return new MCQQuestion(q, opts, b.getInt()).withTags(tags);
+            case TF:
+                return new TrueFalseQuestion(q, b.get() != 0).withTags(tags);
+            default:
+                return new FillBlankQuestion(q, readString(b)).withTags(tags);
+        }
+    }
+
+    /** Decodes only the question text, skipping the tags. */
+    @Override
+    public String textAt(int i) {
+        ByteBuffer b = buf.duplicate();
+        b.position((int) offsetOf(i) + 5);
+        for (int n = b.getShort(); n > 0; n--) b.position(b.position() + 4 + b.getInt(b.position()));
+        return readString(b);
+    }
+
+    @Override
+    public String[] tagsAt(int i) {
+        ByteBuffer b = buf.duplicate();
+        b.position((int) offsetOf(i) + 5);
+        return readTags(b);
+    }
+
+    private static String[] readTags(ByteBuffer b) {
+        int n = b.getShort();
+        if (n == 0) return Question.NO_TAGS;
+        String[] tags = new String[n];
+        for (int k = 0; k < n; k++) tags[k] = readString(b);
+        return tags;
+    }
+
+    private long offsetOf(int i) {
+        if (i < 0 || i >= count) throw new IndexOutOfBoundsException("question " + i + " of " + count);
+        return buf.getLong(HEADER_SIZE + 8 * i);
+    }
+
+    private static String readString(ByteBuffer b) {
+        int len = b.getInt();
+        byte[] bytes = new byte[len];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ---- opening / compiling ----
+
+    static Path binaryPathFor(String textPath) {
+        return Paths.get(textPath + SUFFIX);
+    }
+
+    /**
+     * Maps the compiled form of textPath, recompiling it first if it is missing,
+     * unreadable or older than the text file.
+     */
+    static BinaryQuestionBank openFor(String textPath) throws IOException {
+        return openFor(textPath, null);
+    }
+
+    /** As openFor(textPath), reporting progress through the text file if it has to be compiled. */
+    static BinaryQuestionBank openFor(String textPath, QuestionReader.ProgressListener progress) throws IOException {
+        Path text = Paths.get(textPath);
+        Path bin = binaryPathFor(textPath);
+        long mtime = Files.getLastModifiedTime(text).toMillis();
+        long length = Files.size(text);
+        if (Files.exists(bin)) {
+            try {
+                BinaryQuestionBank bank = map(bin);
+                if (bank.sourceMtime == mtime && bank.sourceLength == length) return bank;
+            } catch (IOException stale) {
+                // unreadable or from another version: rebuild below
+            }
+        }
+        compile(textPath, bin, progress);
+        return map(bin);
+    }
+
+    static BinaryQuestionBank map(Path bin) throws IOException {
+        try (FileChannel ch = FileChannel.open(bin, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Question bank too large to map: " + size + " bytes");
+            return new BinaryQuestionBank(ch.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Compiles textPath into bin in a single streaming pass. Entries are staged in a
+     * temporary file while their offsets are collected, then header, offset table and
+     * entries are written out and moved into place.
+     */
+    static int compile(String textPath, Path bin) throws IOException {
+        return compile(textPath, bin, null);
+    }
+
+    static int compile(String textPath, Path bin, QuestionReader.ProgressListener progress) throws IOException {
+        Path text = Paths.get(textPath);
+        long mtime = Files.getLastModifiedTime(text).toMillis();
+        long length = Files.size(text);
+        Path dir = bin.toAbsolutePath().getParent();
+        Path payload = Files.createTempFile(dir, "qbank", ".payload");
+        Path out = Files.createTempFile(dir, "qbank", ".tmp");
+        try {
+            long[] offsets = new long[1024];
+            int count = 0;
+            try (QuestionReader reader = QuestionReader.open(textPath, QuestionLoader.stderrListener(textPath), progress);
+                 DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(payload), 64 * 1024))) {
+                EntryWriter entry = new EntryWriter();
+                Question q;
+                while ((q = reader.next()) != null) {
+                    if (count == offsets.length) offsets = Arrays.copyOf(offsets, count * 2);
+                    offsets[count++] = data.size();
+                    entry.write(q, data);
+                }
+            }
+            long base = HEADER_SIZE + 8L * count;
+            try (OutputStream os = Files.newOutputStream(out);
+                 DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(os, 64 * 1024))) {
+                dos.writeInt(MAGIC);
+                dos.writeShort(VERSION);
+                dos.writeShort(0);
+                dos.writeInt(count);
+                dos.writeLong(mtime);
+                dos.writeLong(length);
+                dos.writeInt(0);
+                for (int i = 0; i < count; i++) dos.writeLong(base + offsets[i]);
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(payload))) {
+                    byte[] chunk = new byte[64 * 1024];
+                    int n;
+                    while ((n = in.read(chunk)) > 0) dos.write(chunk, 0, n);
+                }
+            }
+            try {
+                Files.move(out, bin, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(out, bin, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return count;
+        } finally {
+            Files.deleteIfExists(payload);
+            Files.deleteIfExists(out);
+        }
+    }
+
+    /** Serializes one entry; reuses a scratch buffer between entries. */
+    private static class EntryWriter {
+        private final java.io.ByteArrayOutputStream scratch = new java.io.ByteArrayOutputStream(256);
+        private final DataOutputStream body = new DataOutputStream(scratch);
+
+        void write(Question q, DataOutputStream out) throws IOException {
+            scratch.reset();
+            body.writeByte(q.getType().ordinal());
+            String[] tags = q.getTags();
+            if (tags.length > Short.MAX_VALUE) throw new IOException("Too many tags: " + tags.length);
+            body.writeShort(tags.length);
+            for (String tag : tags) writeString(body, tag);
+            writeString(body, q.getQuestionText());
+            if (q instanceof MCQQuestion) {
+                MCQQuestion m = (MCQQuestion) q;
+                for (String opt : m.getOptions()) writeString(body, opt);
+                body.writeInt(m.getCorrectIndex());
+            } else if (q instanceof TrueFalseQuestion) {
+                body.writeByte(((TrueFalseQuestion) q).getCorrect() ? 1 : 0);
+            } else {
+                writeString(body, ((FillBlankQuestion) q).getAnswer());
+            }
+            body.flush();
+            out.writeInt(scratch.size());
+            scratch.writeTo(out);
+        }
+
+        private static void writeString(DataOutputStream out, String s) throws IOException {
+            byte[] bytes = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
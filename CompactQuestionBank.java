@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Heap-resident question bank that stores no Question objects and no Strings.
+ * Every text lives once, UTF-8 encoded, in a single byte arena; string i spans
+ * arena[starts[i], starts[i+1]). Options and fill-in-the-blank answers go
+ * through a pool while the bank is built, so "True", "None of the above", "42"
+ * and the like are stored once however many questions use them. Question texts
+ * are almost always unique and are appended without a pool lookup.
+ *
+ * Each question is a fixed record of STRIDE ints in one int[]:
+ *   MCQ  text, option1..option4, correct index
+ *   TF   text, correct (0/1)
+ *   FIB  text, answer line
+ *
+ * Tags are pooled strings too: question i's are tagIds[tagStarts[i],
+ * tagStarts[i+1]).
+ *
+ * get(i) returns a short-lived flyweight (sessions keep only the question being
+ * asked). Options and answers are decoded then, since grading needs them. The
+ * question text is decoded the first time it is displayed or hashed.
+ */
+class CompactQuestionBank implements QuestionBank {
+    private static final int STRIDE = 6;
+    private static final int POOL_MAX_CHARS = 64; // longer texts are unlikely to repeat
+    private static final QuestionType[] TYPES = QuestionType.values();
+
+    private final byte[] arena;
+    private final int[] starts;  // strings + 1 entries
+    private final int[] records; // size * STRIDE
+    private final byte[] types;  // QuestionType ordinal per question
+    private final int[] tagStarts; // size + 1 entries
+    private final int[] tagIds;
+    private final int size;
+
+    private CompactQuestionBank(byte[] arena, int[] starts, int[] records, byte[] types,
+                                int[] tagStarts, int[] tagIds, int size) {
+        this.arena = arena;
+        this.starts = starts;
+        this.records = records;
+        this.types = types;
+        this.tagStarts = tagStarts;
+        this.tagIds = tagIds;
+        this.size = size;
+    }
+
+    /** Streams a questions file into a compact bank; progress may be null. */
+    static CompactQuestionBank load(String path, QuestionReader.ProgressListener progress) throws IOException {
+        Builder b = new Builder();
+        try (QuestionReader reader = QuestionReader.open(path, QuestionLoader.stderrListener(path), progress)) {
+            Question q;
+            while ((q = reader.next()) != null) b.add(q);
+        }
+        return b.build();
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public QuestionType typeAt(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("question " + i + " of " + size);
+        return TYPES[types[i]];
+    }
+
+    @Override
+    public Question get(int i) {
+        QuestionType type = typeAt(i);
+        int r = i * STRIDE;
+        switch (type) {
+            case MCQ:
+                String[] opts = new String[4];
+                for (int k = 0; k < 4; k++) opts[k] = string(records[r + 1 + k]);
+                return new Mcq(this, records[r], opts, records[r + 5]).withTags(tagsAt(i));
+            case TF:
+                return new TrueFalse(this, records[r], records[r + 1] != 0).withTags(tagsAt(i));
+            default:
+                return new FillBlank(this, records[r], string(records[r + 1])).withTags(tagsAt(i));
+        }
+    }
+
+    @Override
+    public String textAt(int i) {
+        typeAt(i); // bounds check
+        return string(records[i * STRIDE]);
+    }
+
+    @Override
+    public String[] tagsAt(int i) {
+        int from = tagStarts[i], to = tagStarts[i + 1];
+        if (from == to) return Question.NO_TAGS;
+        String[] tags = new String[to - from];
+        for (int k = from; k < to; k++) tags[k - from] = string(tagIds[k]);
+        return tags;
+    }
+
+    /** Bytes of UTF-8 text held, after deduplication. */
+    long arenaBytes() { return arena.length; }
+
+    /** Distinct strings in the arena. */
+    int strings() { return starts.length - 1; }
+
+    /** Approximate heap held by this bank's arrays. */
+    long footprintBytes() {
+        return arena.length + 4L * starts.length + 4L * records.length + types.length
+                + 4L * tagStarts.length + 4L * tagIds.length + 6 * 16;
+    }
+
+    String string(int id) {
+        return new String(arena, starts[id], starts[id + 1] - starts[id], StandardCharsets.UTF_8);
+    }
+
+    // ---- flyweights ----
+
+    private static final class Mcq extends MCQQuestion {
+        private final CompactQuestionBank bank;
+        private final int textId;
+        private String text; // decoded on first use; racing decodes produce equal strings
+
+        Mcq(CompactQuestionBank bank, int textId, String[] options, int correctIndex) {
+            super(null, options, correctIndex);
+            this.bank = bank;
+            this.textId = textId;
+        }
+
+        @Override public String getQuestionText() {
+            String t = text;
+            if (t == null) text = t = bank.string(textId);
+            return t;
+        }
+    }
+
+    private static final class TrueFalse extends TrueFalseQuestion {
+        private final CompactQuestionBank bank;
+        private final int textId;
+        private String text;
+
+        TrueFalse(CompactQuestionBank bank, int textId, boolean correct) {
+            super(null, correct);
+            this.bank = bank;
+            this.textId = textId;
+        }
+
+        @Override public String getQuestionText() {
+            String t = text;
+            if (t == null) text = t = bank.string(textId);
+            return t;
+        }
+    }
+
+    private static final class FillBlank extends FillBlankQuestion {
+        private final CompactQuestionBank bank;
+        private final int textId;
+        private String text;
+
+        FillBlank(CompactQuestionBank bank, int textId, String answer) {
+            super(null, answer);
+            this.bank = bank;
+            this.textId = textId;
+        }
+
+        @Override public String getQuestionText() {
+            String t = text;
+            if (t == null) text = t = bank.string(textId);
+            return t;
+        }
+    }
+
+    // ---- building ----
+
+    /** Accumulates questions; the pool is dropped once the bank is built. */
+    static final class Builder {
+        private byte[] arena = new byte[1 << 16];
+        private int arenaSize;
+        private int[] starts = new int[1024];
+        private int strings;
+        private int[] records = new int[1024 * STRIDE];
+        private byte[] types = new byte[1024];
+        private int[] tagStarts = new int[1025];
+        private int[] tagIds = new int[1024];
+        private int tagCount;
+        private int size;
+        private final Map<String, Integer> pool = new HashMap<String, Integer>();
+
+        void add(Question q) throws IOException {
+            if (size == types.length) {
+                types = Arrays.copyOf(types, size * 2);
+                records = Arrays.copyOf(records, size * 2 * STRIDE);
+                tagStarts = Arrays.copyOf(tagStarts, size * 2 + 1);
+            }
+            int r = size * STRIDE;
+            types[size] = (byte) q.getType().ordinal();
+            records[r] = append(q.getQuestionText());
+            if (q instanceof MCQQuestion) {
+                MCQQuestion m = (MCQQuestion) q;
+                String[] opts = m.getOptions();
+                for (int k = 0; k < 4; k++) records[r + 1 + k] = pooled(opts[k]);
+                records[r + 5] = m.getCorrectIndex();
+            } else if (q instanceof TrueFalseQuestion) {
+                records[r + 1] = ((TrueFalseQuestion) q).getCorrect() ? 1 : 0;
+            } else {
+                records[r + 1] = pooled(((FillBlankQuestion) q).getAnswer());
+            }
+            for (String tag : q.getTags()) {
+                if (tagCount == tagIds.length) tagIds = Arrays.copyOf(tagIds, tagCount * 2);
+                tagIds[tagCount++] = pooled(tag);
+            }
+            tagStarts[++size] = tagCount;
+        }
+
+        CompactQuestionBank build() {
+            int[] s = Arrays.copyOf(starts, strings + 1);
+            s[strings] = arenaSize;
+            return new CompactQuestionBank(Arrays.copyOf(arena, arenaSize), s,
+                    Arrays.copyOf(records, size * STRIDE), Arrays.copyOf(types, size),
+                    Arrays.copyOf(tagStarts, size + 1), Arrays.copyOf(tagIds, tagCount), size);
+        }
+
+        private int pooled(String text) throws IOException {
+            if (text.length() > POOL_MAX_CHARS) return append(text);
+            Integer id = pool.get(text);
+            if (id == null) {
+                id = append(text);
+                pool.put(text, id);
+            }
+            return id;
+        }
+
+        private int append(String text) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            if (arenaSize + (long) bytes.length > Integer.MAX_VALUE - 8) {
+                throw new IOException("Question bank text exceeds 2 GB; use the compiled .bin bank");
+            }
+            if (arenaSize + bytes.length > arena.length) {
+                arena = Arrays.copyOf(arena, (int) Math.min(Integer.MAX_VALUE - 8,
+                        Math.max(arena.length * 2L, arenaSize + (long) bytes.length)));
+            }
+            System.arraycopy(bytes, 0, arena, arenaSize, bytes.length);
+            if (strings + 1 >= starts.length) starts = Arrays.copyOf(starts, starts.length * 2);
+            starts[strings] = arenaSize;
+            arenaSize += bytes.length;
+            return strings++;
+        }
+    }
+}
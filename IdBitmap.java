@@ -0,0 +1,248 @@
+import java.util.Arrays;
+
+/*
+ * Immutable compressed set of question ids (non-negative ints), laid out like a
+ * Roaring bitmap: ids are grouped into chunks by their high 16 bits, and each
+ * chunk keeps its low 16 bits either as a sorted char[] (up to ARRAY_MAX ids,
+ * 2 bytes each) or as a 65536-bit long[1024] (8 KB, for denser chunks). A term
+ * found in a handful of questions costs a few bytes; one found in most of them
+ * costs one bit per question. and() and or() work chunk by chunk, picking the
+ * cheapest algorithm for each pair of representations.
+ */
+final class IdBitmap {
+    private static final int ARRAY_MAX = 4096; // above this a bitmap chunk is smaller
+    private static final int WORDS = 1024;
+
+    static final IdBitmap EMPTY = new IdBitmap(new char[0], new Object[0], new int[0]);
+
+    private final char[] keys;     // high 16 bits of each chunk, ascending
+    private final Object[] chunks; // char[] or long[WORDS]
+    private final int[] counts;    // ids per chunk
+    private final int cardinality;
+
+    private IdBitmap(char[] keys, Object[] chunks, int[] counts) {
+        this.keys = keys;
+        this.chunks = chunks;
+        this.counts = counts;
+        int c = 0;
+        for (int n : counts) c += n;
+        this.cardinality = c;
+    }
+
+    /** The first n entries of ids, which must be ascending, distinct and non-negative. */
+    static IdBitmap of(int[] ids, int n) {
+        if (n == 0) return EMPTY;
+        int groups = 1;
+        for (int i = 1; i < n; i++) if (ids[i] >>> 16 != ids[i - 1] >>> 16) groups++;
+        char[] keys = new char[groups];
+        Object[] chunks = new Object[groups];
+        int[] counts = new int[groups];
+        int g = 0;
+        for (int start = 0; start < n; g++) {
+            int high = ids[start] >>> 16;
+            int end = start;
+            while (end < n && ids[end] >>> 16 == high) end++;
+            int c = end - start;
+            keys[g] = (char) high;
+            counts[g] = c;
+            if (c <= ARRAY_MAX) {
+                char[] a = new char[c];
+                for (int i = 0; i < c; i++) a[i] = (char) ids[start + i];
+                chunks[g] = a;
+            } else {
+                long[] w = new long[WORDS];
+                for (int i = start; i < end; i++) w[(ids[i] & 0xFFFF) >>> 6] |= 1L << ids[i];
+                chunks[g] = w;
+            }
+            start = end;
+        }
+        return new IdBitmap(keys, chunks, counts);
+    }
+
+    int cardinality() { return cardinality; }
+
+    boolean isEmpty() { return cardinality == 0; }
+
+    boolean contains(int id) {
+        int k = Arrays.binarySearch(keys, (char) (id >>> 16));
+        if (k < 0 || id < 0) return false;
+        Object c = chunks[k];
+        if (c instanceof char[]) return Arrays.binarySearch((char[]) c, (char) id) >= 0;
+        return (((long[]) c)[(id & 0xFFFF) >>> 6] & (1L << id)) != 0;
+    }
+
+    /** The rank-th smallest id (0-based); rank must be below cardinality(). */
+    int select(int rank) {
+        if (rank < 0 || rank >= cardinality) throw new IndexOutOfBoundsException("rank " + rank + " of " + cardinality);
+        int k = 0;
+        while (rank >= counts[k]) rank -= counts[k++];
+        int high = keys[k] << 16;
+        Object c = chunks[k];
+        if (c instanceof char[]) return high | ((char[]) c)[rank];
+        long[] w = (long[]) c;
+        for (int i = 0; ; i++) {
+            int bits = Long.bitCount(w[i]);
+            if (rank < bits) {
+                long word = w[i];
+                for (; rank > 0; rank--) word &= word - 1;
+                return high | (i << 6) | Long.numberOfTrailingZeros(word);
+            }
+            rank -= bits;
+        }
+    }
+
+    /** All ids, ascending. */
+    int[] toArray() {
+        int[] out = new int[cardinality];
+        int n = 0;
+        for (int k = 0; k < keys.length; k++) {
+            int high = keys[k] << 16;
+            Object c = chunks[k];
+            if (c instanceof char[]) {
+                for (char low : (char[]) c) out[n++] = high | low;
+            } else {
+                long[] w = (long[]) c;
+                for (int i = 0; i < WORDS; i++) {
+                    for (long word = w[i]; word != 0; word &= word - 1) {
+                        out[n++] = high | (i << 6) | Long.numberOfTrailingZeros(word);
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    /** Approximate heap held by the chunks. */
+    long sizeInBytes() {
+        long bytes = 2L * keys.length + 4L * counts.length + 4L * chunks.length;
+        for (Object c : chunks) bytes += 16 + (c instanceof char[] ? 2L * ((char[]) c).length : 8L * WORDS);
+        return bytes;
+    }
+
+    IdBitmap and(IdBitmap o) {
+        if (isEmpty() || o.isEmpty()) return EMPTY;
+        int max = Math.min(keys.length, o.keys.length);
+        char[] k = new char[max];
+        Object[] c = new Object[max];
+        int[] n = new int[max];
+        int out = 0;
+        for (int i = 0, j = 0; i < keys.length && j < o.keys.length; ) {
+            if (keys[i] < o.keys[j]) {
+                i++;
+            } else if (keys[i] > o.keys[j]) {
+                j++;
+            } else {
+                Object r = and(chunks[i], o.chunks[j]);
+                int count = count(r);
+                if (count > 0) {
+                    k[out] = keys[i];
+                    c[out] = r;
+                    n[out++] = count;
+                }
+                i++;
+                j++;
+            }
+        }
+        return out == 0 ? EMPTY : new IdBitmap(Arrays.copyOf(k, out), Arrays.copyOf(c, out), Arrays.copyOf(n, out));
+    }
+
+    IdBitmap or(IdBitmap o) {
+        if (o.isEmpty()) return this;
+        if (isEmpty()) return o;
+        int max = keys.length + o.keys.length;
+        char[] k = new char[max];
+        Object[] c = new Object[max];
+        int[] n = new int[max];
+        int out = 0;
+        int i = 0, j = 0;
+        while (i < keys.length || j < o.keys.length) {
+            if (j == o.keys.length || i < keys.length && keys[i] < o.keys[j]) {
+                k[out] = keys[i]; c[out] = chunks[i]; n[out++] = counts[i++];
+            } else if (i == keys.length || keys[i] > o.keys[j]) {
+                k[out] = o.keys[j]; c[out] = o.chunks[j]; n[out++] = o.counts[j++];
+            } else {
+                Object r = or(chunks[i++], o.chunks[j++]);
+                k[out] = keys[i - 1]; c[out] = r; n[out++] = count(r);
+            }
+        }
+        return new IdBitmap(Arrays.copyOf(k, out), Arrays.copyOf(c, out), Arrays.copyOf(n, out));
+    }
+
+    // ---- chunk algebra; chunks are never modified once built ----
+
+    private static int count(Object c) {
+        if (c instanceof char[]) return ((char[]) c).length;
+        int n = 0;
+        for (long w : (long[]) c) n += Long.bitCount(w);
+        return n;
+    }
+
+    private static Object and(Object a, Object b) {
+        if (a instanceof char[] && b instanceof char[]) {
+            char[] x = (char[]) a, y = (char[]) b;
+            char[] r = new char[Math.min(x.length, y.length)];
+            int n = 0;
+            for (int i = 0, j = 0; i < x.length && j < y.length; ) {
+                if (x[i] < y[j]) i++;
+                else if (x[i] > y[j]) j++;
+                else { r[n++] = x[i]; i++; j++; }
+            }
+            return Arrays.copyOf(r, n);
+        }
+        if (b instanceof char[]) { Object t = a; a = b; b = t; }
+        if (a instanceof char[]) {
+            char[] x = (char[]) a;
+            long[] w = (long[]) b;
+            char[] r = new char[x.length];
+            int n = 0;
+            for (char v : x) if ((w[v >>> 6] & (1L << v)) != 0) r[n++] = v;
+            return Arrays.copyOf(r, n);
+        }
+        long[] x = (long[]) a, y = (long[]) b;
+        long[] r = new long[WORDS];
+        int n = 0;
+        for (int i = 0; i < WORDS; i++) n += Long.bitCount(r[i] = x[i] & y[i]);
+        return n <= ARRAY_MAX ? toArray(r, n) : r;
+    }
+
+    private static Object or(Object a, Object b) {
+        if (a instanceof char[] && b instanceof char[]) {
+            char[] x = (char[]) a, y = (char[]) b;
+            if (x.length + y.length <= ARRAY_MAX) {
+                char[] r = new char[x.length + y.length];
+                int n = 0, i = 0, j = 0;
+                while (i < x.length || j < y.length) {
+                    if (j == y.length || i < x.length && x[i] < y[j]) r[n++] = x[i++];
+                    else if (i == x.length || x[i] > y[j]) r[n++] = y[j++];
+                    else { r[n++] = x[i++]; j++; }
+                }
+                return Arrays.copyOf(r, n);
+            }
+            long[] r = new long[WORDS];
+            for (char v : x) r[v >>> 6] |= 1L << v;
+            for (char v : y) r[v >>> 6] |= 1L << v;
+            int n = count(r);
+            return n <= ARRAY_MAX ? toArray(r, n) : r;
+        }
+        if (b instanceof char[]) { Object t = a; a = b; b = t; }
+        long[] r = ((long[]) b).clone();
+        if (a instanceof char[]) {
+            for (char v : (char[]) a) r[v >>> 6] |= 1L << v;
+        } else {
+            long[] x = (long[]) a;
+            for (int i = 0; i < WORDS; i++) r[i] |= x[i];
+        }
+        return r;
+    }
+
+    private static char[] toArray(long[] w, int n) {
+        char[] r = new char[n];
+        int k = 0;
+        for (int i = 0; i < WORDS; i++) {
+            for (long word = w[i]; word != 0; word &= word - 1) {
+                r[k++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+            }
+        }
+        return r;
+    }
+}
@@ -0,0 +1,330 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only, line-oriented journal (used for the result segments) written by one
+ * background thread. Records queued by any number of sessions are written in
+ * group commits: everything waiting when the writer wakes up goes out in a
+ * single FileChannel write, followed by an fsync according to the Durability
+ * policy.
+ *
+ * Each record is framed as  <payload> TAB <crc32 as 8 hex digits> NEWLINE  in
+ * UTF-8, so the file stays readable as text. Lines without a frame (written
+ * before the journal existed) are accepted as they are. When the file is first
+ * opened, a torn tail left by a crash (a partial last record, or a last record
+ * whose checksum does not match) is truncated away. A last line without a
+ * newline is only treated as torn if it was cut inside its frame or follows a
+ * framed record; otherwise it is a legacy record, and is kept and terminated.
+ */
+class Journal implements Closeable {
+    enum Durability {
+        /** fsync after every group commit; futures complete once data is on disk. */
+        SYNC_EACH_BATCH,
+        /** fsync at most every syncIntervalMs; futures complete once written to the OS. */
+        SYNC_INTERVAL
+    }
+
+    private static final int MAX_BATCH = 4096;
+    private static final int MAX_TAIL_REPAIR = 16; // records checked from the end at open
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final class Pending {
+        final String payload;
+        final CompletableFuture<Void> done = new CompletableFuture<Void>();
+        final long queuedAt = System.nanoTime();
+        Pending(String payload) { this.payload = payload; }
+    }
+
+    private static final Pending CLOSE = new Pending(null);
+
+    private final Path path;
+    private final Durability durability;
+    private final long syncIntervalMs;
+    private final Metrics.Histogram latency; // append to written (and synced, per policy); may be null
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<Pending>();
+    private final Thread writer;
+    private final Thread shutdownHook; // removed again on close, so rotated journals do not pile up
+    private volatile boolean closed;
+
+    // Writer-thread state
+    private FileChannel channel;
+    private ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+    private final CRC32 crc = new CRC32();
+    private boolean unsynced;
+    private long lastSync;
+
+    Journal(String path, Durability durability, long syncIntervalMs) {
+        this(path, durability, syncIntervalMs, null);
+    }
+
+    /** As above, recording each record's time from append to completion in latency. */
+    Journal(String path, Durability durability, long syncIntervalMs, Metrics.Histogram latency) {
+        this.path = Paths.get(path);
+        this.latency = latency;
+        this.durability = durability;
+        this.syncIntervalMs = Math.max(1, syncIntervalMs);
+        this.writer = new Thread(new Runnable() {
+            @Override public void run() { writeLoop(); }
+        }, "journal-" + this.path.getFileName());
+        writer.setDaemon(true);
+        writer.start();
+        this.shutdownHook = new Thread(new Runnable() {
+            @Override public void run() { close(); }
+        }, "journal-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Queues one record (a single line, no line breaks). The future completes when
+     * the record has been committed per the durability policy, or exceptionally if
+     * it could not be written.
+     */
+    CompletableFuture<Void> append(String record) {
+        if (record.indexOf('\n') >= 0 || record.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Journal records must be single lines");
+        }
+        Pending p = new Pending(record);
+        if (closed) {
+            p.done.completeExceptionally(new IOException("Journal closed: " + path));
+            return p.done;
+        }
+        queue.add(p);
+        return p.done;
+    }
+
+    /** Flushes everything queued so far, syncs and stops the writer. */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // JVM already shutting down: the hook runs anyway and finds us closed
+            }
+        }
+        queue.add(CLOSE);
+        try {
+            writer.join(10000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the payload of a journal line, the line itself if it has no frame,
+     * or null if it has a frame whose checksum does not match.
+     */
+    static String unframe(String line) {
+        int n = line.length();
+        if (n < 9 || line.charAt(n - 9) != '\t') return line;
+        long expected = 0;
+        for (int i = n - 8; i < n; i++) {
+            int d = Character.digit(line.charAt(i), 16);
+            if (d < 0) return line;
+            expected = (expected << 4) | d;
+        }
+        String payload = line.substring(0, n - 9);
+        CRC32 c = new CRC32();
+        c.update(payload.getBytes(StandardCharsets.UTF_8));
+        return c.getValue() == expected ? payload : null;
+    }
+
+    // ---- writer thread ----
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<Pending>();
+        boolean stop = false;
+        while (!stop) {
+            try {
+                Pending first = unsynced
+                        ? queue.poll(Math.max(1, lastSync + syncIntervalMs - System.currentTimeMillis()), TimeUnit.MILLISECONDS)
+                        : queue.take();
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                }
+            } catch (InterruptedException e) {
+                stop = true;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.get(i) == CLOSE) {
+                    stop = true;
+                    batch.remove(i--);
+                }
+            }
+            commit(batch, stop);
+            batch.clear();
+        }
+        // Anything that raced with close() is refused rather than left hanging.
+        Pending late;
+        while ((late = queue.poll()) != null) {
+            late.done.completeExceptionally(new IOException("Journal closed: " + path));
+        }
+        if (channel != null) {
+            try { channel.close(); } catch (IOException ignore) {}
+        }
+    }
+
+    private void commit(List<Pending> batch, boolean finalSync) {
+        try {
+            if (channel == null) openChannel();
+            if (!batch.isEmpty()) {
+                buf.clear();
+                for (Pending p : batch) encode(p.payload);
+                buf.flip();
+                while (buf.hasRemaining()) channel.write(buf);
+                unsynced = true;
+            }
+            long now = System.currentTimeMillis();
+            if (unsynced && (finalSync || durability == Durability.SYNC_EACH_BATCH || now - lastSync >= syncIntervalMs)) {
+                channel.force(false);
+                unsynced = false;
+                lastSync = now;
+            }
+            long done = System.nanoTime();
+            for (Pending p : batch) {
+                p.done.complete(null);
+                if (latency != null) latency.record(done - p.queuedAt);
+            }
+        } catch (IOException e) {
+            Metrics.WRITE_ERRORS.increment();
+            for (Pending p : batch) p.done.completeExceptionally(e);
+            // Reopen (and repair the tail) before the next batch.
+            if (channel != null) {
+                try { channel.close(); } catch (IOException ignore) {}
+                channel = null;
+            }
+        }
+    }
+
+    private void encode(String payload) {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        crc.reset();
+        crc.update(bytes);
+        long c = crc.getValue();
+        ensureCapacity(bytes.length + 9 + NEWLINE.length);
+        buf.put(bytes);
+        buf.put((byte) '\t');
+        for (int shift = 28; shift >= 0; shift -= 4) buf.put((byte) HEX[(int) (c >>> shift) & 0xF]);
+        buf.put(NEWLINE);
+    }
+
+    private void ensureCapacity(int more) {
+        if (buf.remaining() >= more) return;
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + more));
+        buf.flip();
+        bigger.put(buf);
+        buf = bigger;
+    }
+
+    private void openChannel() throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            recoverTail(ch);
+            ch.position(ch.size());
+        } catch (IOException e) {
+            ch.close();
+            throw e;
+        }
+        channel = ch;
+        lastSync = System.currentTimeMillis();
+    }
+
+    /**
+     * Truncates a partial last record and any trailing records with a bad checksum.
+     * An unterminated last line that is not part of a record (a legacy line at the
+     * end of a file the journal has not written to yet) is kept and gets a newline.
+     * Returns the number of bytes removed.
+     */
+    static long recoverTail(FileChannel ch) throws IOException {
+        long size = ch.size();
+        long end = size;
+        for (int checked = 0; end > 0 && checked <= MAX_TAIL_REPAIR; checked++) {
+            long lineEnd = end;
+            if (byteAt(ch, end - 1) == '\n') {
+                lineEnd = end - 1;
+                if (lineEnd > 0 && byteAt(ch, lineEnd - 1) == '\r') lineEnd--;
+            }
+            long start = lastLineStart(ch, lineEnd);
+            String text = readLine(ch, start, lineEnd);
+            if (lineEnd != end) {
+                if (unframe(text) != null) break;
+            } else if (!cutInFrame(text) && !isRecord(previousLine(ch, start))) {
+                ch.write(ByteBuffer.wrap(NEWLINE), end);
+                break;
+            }
+            end = start;
+        }
+        if (end < size) ch.truncate(end);
+        return size - end;
+    }
+
+    /** True if line ends in a TAB and at most 8 hex digits: a record cut inside its checksum. */
+    private static boolean cutInFrame(String line) {
+        int tab = line.lastIndexOf('\t');
+        if (tab < 0 || line.length() - tab - 1 > 8) return false;
+        for (int i = tab + 1; i < line.length(); i++) {
+            if (Character.digit(line.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+
+    /** True if line is a framed record with a matching checksum (not a legacy line). */
+    private static boolean isRecord(String line) {
+        String payload = line == null ? null : unframe(line);
+        return payload != null && payload.length() != line.length();
+    }
+
+    /** The complete line before the one starting at start, or null if there is none. */
+    private static String previousLine(FileChannel ch, long start) throws IOException {
+        if (start == 0) return null;
+        long end = start - 1; // its '\n'
+        if (end > 0 && byteAt(ch, end - 1) == '\r') end--;
+        return readLine(ch, lastLineStart(ch, end), end);
+    }
+
+    private static String readLine(FileChannel ch, long start, long end) throws IOException {
+        ByteBuffer line = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, end - start));
+        while (line.hasRemaining() && ch.read(line, start + line.position()) > 0) { }
+        return new String(line.array(), 0, line.position(), StandardCharsets.UTF_8);
+    }
+
+    private static int byteAt(FileChannel ch, long pos) throws IOException {
+        ByteBuffer one = ByteBuffer.allocate(1);
+        ch.read(one, pos);
+        return one.get(0);
+    }
+
+    /** Offset just after the last '\n' before pos (0 if none). */
+    private static long lastLineStart(FileChannel ch, long pos) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(4096);
+        while (pos > 0) {
+            int len = (int) Math.min(chunk.capacity(), pos);
+            chunk.clear();
+            chunk.limit(len);
+            ch.read(chunk, pos - len);
+            for (int i = len - 1; i >= 0; i--) {
+                if (chunk.get(i) == '\n') return pos - len + i + 1;
+            }
+            pos -= len;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,202 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+
+/*
+ * Live top-K leaderboards kept in memory: all-time, today and this week, plus
+ * every player's personal best. They are rebuilt once at startup, from the
+ * ResultStore's segment summaries plus today's segment (or, with load, from a
+ * plain results file), and then updated as each result is recorded, so showing
+ * a board never rescans or sorts the history.
+ *
+ * Each board is an immutable, sorted array of at most `capacity` entries,
+ * published through an AtomicReference. Readers take the current array with one
+ * volatile read and never block or see a half-updated board; a writer copies the
+ * array with its entry inserted and installs it with compareAndSet, retrying if
+ * another writer got there first. Most results do not make the top K, and those
+ * are rejected against the current last place without writing anything, so
+ * finishing sessions hardly contend at all. Personal bests use
+ * ConcurrentHashMap.merge, which only locks the one player's bin.
+ *
+ * The daily and weekly boards belong to a period (day, or week starting on
+ * Monday, of the result's timestamp); the first result of a new period starts a
+ * fresh board and results from an earlier period are ignored there.
+ */
+class Leaderboard {
+    enum Period { DAILY, WEEKLY, ALL_TIME }
+
+    /**
+     * Share of questions answered correctly (score/total) descending, so quizzes
+     * of any length or topic filter are ranked on one scale; then total
+     * descending (10/10 before 5/5), then time descending (most recent first).
+     * Entries without a total rank last. Times are the pre-parsed minutes; the
+     * timestamp text only breaks ties among entries whose time is equal or
+     * unparseable (legacy lines).
+     */
+    static final Comparator<LeaderboardEntry> RANKING = new Comparator<LeaderboardEntry>() {
+        @Override public int compare(LeaderboardEntry a, LeaderboardEntry b) {
+            int cmp = Boolean.compare(b.total > 0, a.total > 0);
+            if (cmp != 0) return cmp;
+            cmp = Long.compare((long) b.score * Math.max(1, a.total), (long) a.score * Math.max(1, b.total));
+            if (cmp != 0) return cmp;
+            cmp = Integer.compare(b.total, a.total);
+            if (cmp != 0) return cmp;
+            cmp = Long.compare(b.minute, a.minute);
+            if (cmp != 0) return cmp;
+            return b.timestamp.compareTo(a.timestamp);
+        }
+    };
+
+    /** Entry plus arrival order, so ties keep the order they appear in the log. */
+    private static final class Ranked {
+        final LeaderboardEntry entry;
+        final long seq;
+        Ranked(LeaderboardEntry entry, long seq) { this.entry = entry; this.seq = seq; }
+    }
+
+    private static final Comparator<Ranked> BEST_FIRST = new Comparator<Ranked>() {
+        @Override public int compare(Ranked a, Ranked b) {
+            int cmp = RANKING.compare(a.entry, b.entry);
+            return cmp != 0 ? cmp : Long.compare(a.seq, b.seq);
+        }
+    };
+
+    private static final BiFunction<LeaderboardEntry, LeaderboardEntry, LeaderboardEntry> BETTER =
+            new BiFunction<LeaderboardEntry, LeaderboardEntry, LeaderboardEntry>() {
+                @Override public LeaderboardEntry apply(LeaderboardEntry a, LeaderboardEntry b) {
+                    return RANKING.compare(b, a) < 0 ? b : a;
+                }
+            };
+
+    private static final long NO_PERIOD = Long.MIN_VALUE; // all-time board; entries without a date
+    private static final Ranked[] EMPTY = new Ranked[0];
+
+    /** One immutable board: its period and entries, best first. */
+    private static final class Snapshot {
+        final long period;
+        final Ranked[] top;
+        Snapshot(long period, Ranked[] top) { this.period = period; this.top = top; }
+    }
+
+    private final int capacity;
+    private final AtomicLong seq = new AtomicLong();
+    private final AtomicReference<Snapshot> allTime;
+    private final AtomicReference<Snapshot> daily;
+    private final AtomicReference<Snapshot> weekly;
+    private final ConcurrentMap<String, LeaderboardEntry> bests = new ConcurrentHashMap<String, LeaderboardEntry>();
+
+    Leaderboard(int capacity) {
+        this.capacity = capacity;
+        Snapshot none = new Snapshot(NO_PERIOD, EMPTY);
+        this.allTime = new AtomicReference<Snapshot>(none);
+        this.daily = new AtomicReference<Snapshot>(none);
+        this.weekly = new AtomicReference<Snapshot>(none);
+    }
+
+    /** Builds the boards from every parseable line of the results log (missing file = empty boards). */
+    static Leaderboard load(String resultsPath, int capacity) {
+        Leaderboard board = new Leaderboard(capacity);
+        if (new File(resultsPath).exists()) {
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(resultsPath), StandardCharsets.UTF_8), 64 * 1024)) {
+                String ln;
+                while ((ln = br.readLine()) != null) {
+                    String record = Journal.unframe(ln);
+                    if (record == null) continue; // damaged record
+                    LeaderboardEntry e = LeaderboardEntry.parse(record);
+                    if (e != null) board.offer(e);
+                }
+            } catch (IOException ignore) {}
+        }
+        return board;
+    }
+
+    /** Records one result on every board it qualifies for; safe from any number of threads. */
+    void offer(LeaderboardEntry e) {
+        LeaderboardEntry best = bests.get(e.name); // lock-free check; most results are no new best
+        if (best == null || RANKING.compare(e, best) < 0) bests.merge(e.name, e, BETTER);
+        if (capacity <= 0) return;
+        Ranked r = new Ranked(e, seq.getAndIncrement());
+        insert(allTime, NO_PERIOD, r);
+        long day = e.epochDay();
+        if (day >= 0) {
+            insert(daily, day, r);
+            insert(weekly, weekOf(day), r);
+        }
+    }
+
+    /** The all-time board, best first. */
+    List<LeaderboardEntry> top() {
+        return top(Period.ALL_TIME, null);
+    }
+
+    /** The board for period as of today (empty if nothing was recorded in it yet). */
+    List<LeaderboardEntry> top(Period period) {
+        return top(period, LocalDate.now());
+    }
+
+    List<LeaderboardEntry> top(Period period, LocalDate today) {
+        Snapshot s;
+        switch (period) {
+            case DAILY:
+                s = daily.get();
+                if (s.period != today.toEpochDay()) return Collections.emptyList();
+                break;
+            case WEEKLY:
+                s = weekly.get();
+                if (s.period != weekOf(today.toEpochDay())) return Collections.emptyList();
+                break;
+            default:
+                s = allTime.get();
+        }
+        List<LeaderboardEntry> out = new ArrayList<LeaderboardEntry>(s.top.length);
+        for (Ranked r : s.top) out.add(r.entry);
+        return out;
+    }
+
+    /** A player's best result by RANKING (best share, longer quiz, most recent), or null. */
+    LeaderboardEntry best(String name) {
+        return bests.get(name);
+    }
+
+    int players() {
+        return bests.size();
+    }
+
+    private void insert(AtomicReference<Snapshot> board, long period, Ranked r) {
+        while (true) {
+            Snapshot cur = board.get();
+            Ranked[] top = cur.top;
+            if (cur.period != NO_PERIOD && period < cur.period) return; // a past period
+            if (period != cur.period) top = EMPTY;                        // a new period begins
+            int n = top.length;
+            if (n == capacity && BEST_FIRST.compare(r, top[n - 1]) >= 0) return; // does not make the board
+            int at = Arrays.binarySearch(top, r, BEST_FIRST);
+            at = at < 0 ? -at - 1 : at;
+            Ranked[] next = new Ranked[Math.min(capacity, n + 1)];
+            System.arraycopy(top, 0, next, 0, at);
+            next[at] = r;
+            System.arraycopy(top, at, next, at + 1, next.length - at - 1);
+            if (board.compareAndSet(cur, new Snapshot(period, next))) return;
+        }
+    }
+
+    /** Epoch day of the Monday starting the week that contains day. */
+    static long weekOf(long day) {
+        return day - Math.floorMod(day + 3, 7); // epoch day 0 was a Thursday
+    }
+}
@@ -0,0 +1,416 @@
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/*
+ * Built-in latency histograms and counters for the quiz lifecycle: question
+ * bank load and indexing, filtered sampling, question render, answer handling,
+ * result and answer log writes, leaderboard render, and every event dispatched
+ * on the Swing thread.
+ *
+ * Histograms are HdrHistogram-style log-linear buckets over nanoseconds: exact
+ * below 128 ns, then 64 buckets per power of two (under 1.6% error), held in an
+ * AtomicLongArray. Recording is a few atomic adds, with no locks and no
+ * allocation, so it is always on; readers take a snapshot when asked.
+ *
+ * Exported three ways: a JMX MBean (QuizApp:type=Metrics, see start), a JSON
+ * file rewritten periodically when quiz.metrics.file is set, and toJson() for
+ * callers such as QuizServer's /metrics. installEdtMonitor() pushes an
+ * EventQueue that times every dispatch and reports EDT stalls (a single event
+ * running longer than quiz.metrics.edtStallMillis, default 100), printing the
+ * Swing thread's stack while it is still stuck.
+ */
+final class Metrics {
+    private static final int SUB_BITS = 7;
+    private static final int HALF = 1 << (SUB_BITS - 1);
+    private static final int BUCKETS = (64 - SUB_BITS) * HALF + (1 << SUB_BITS);
+    private static final long START_MILLIS = System.currentTimeMillis();
+
+    private static final List<Histogram> HISTOGRAMS = new ArrayList<Histogram>();
+    private static final List<Counter> COUNTERS = new ArrayList<Counter>();
+
+    static final Histogram QUESTION_LOAD = histogram("questionLoad");
+    static final Histogram INDEX_BUILD = histogram("indexBuild");
+    static final Histogram FILTERED_SAMPLE = histogram("filteredSample");
+    static final Histogram RENDER_QUESTION = histogram("renderQuestion");
+    static final Histogram ANSWER = histogram("answer");
+    static final Histogram RESULT_WRITE = histogram("resultWrite");
+    static final Histogram ANSWER_LOG_WRITE = histogram("answerLogWrite");
+    static final Histogram LEADERBOARD_RENDER = histogram("leaderboardRender");
+    static final Histogram EDT_DISPATCH = histogram("edtDispatch");
+
+    static final Counter SESSIONS_STARTED = counter("sessionsStarted");
+    static final Counter ANSWERS_CORRECT = counter("answersCorrect");
+    static final Counter ANSWERS_WRONG = counter("answersWrong");
+    static final Counter ANSWERS_TIMED_OUT = counter("answersTimedOut");
+    static final Counter RESULTS_RECORDED = counter("resultsRecorded");
+    static final Counter WRITE_ERRORS = counter("writeErrors");
+    static final Counter EDT_STALLS = counter("edtStalls");
+
+    private static final AtomicBoolean STARTED = new AtomicBoolean();
+    private static final AtomicBoolean EDT_INSTALLED = new AtomicBoolean();
+
+    private Metrics() {}
+
+    private static Histogram histogram(String name) {
+        Histogram h = new Histogram(name);
+        HISTOGRAMS.add(h);
+        return h;
+    }
+
+    private static Counter counter(String name) {
+        Counter c = new Counter(name);
+        COUNTERS.add(c);
+        return c;
+    }
+
+    /** A monotonically increasing count. */
+    static final class Counter {
+        final String name;
+        private final AtomicLong value = new AtomicLong();
+        Counter(String name) { this.name = name; }
+        void increment() { value.incrementAndGet(); }
+        long get() { return value.get(); }
+    }
+
+    /** Latency distribution in nanoseconds; record() is lock- and allocation-free. */
+    static final class Histogram {
+        final String name;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(String name) { this.name = name; }
+
+        void record(long nanos) {
+            long v = nanos < 0 ? 0 : nanos;
+            counts.incrementAndGet(bucket(v));
+            sum.addAndGet(v);
+            long m;
+            while (v > (m = max.get()) && !max.compareAndSet(m, v)) { }
+        }
+
+        /** Records the time since startNanos (a System.nanoTime() value). */
+        void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        /** A consistent-enough copy for reporting (buckets are read one by one). */
+        Snapshot snapshot() {
+            long[] c = new long[BUCKETS];
+            long n = 0;
+            for (int i = 0; i < BUCKETS; i++) n += c[i] = counts.get(i);
+            return new Snapshot(name, c, n, sum.get(), max.get());
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+            sum.set(0);
+            max.set(0);
+        }
+    }
+
+    /** Point-in-time view of a Histogram. */
+    static final class Snapshot {
+        final String name;
+        final long count, sumNanos, maxNanos;
+        private final long[] counts;
+
+        Snapshot(String name, long[] counts, long count, long sumNanos, long maxNanos) {
+            this.name = name;
+            this.counts = counts;
+            this.count = count;
+            this.sumNanos = sumNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        double meanNanos() {
+            return count == 0 ? 0 : (double) sumNanos / count;
+        }
+
+        /** Upper bound of the bucket holding quantile q (0..1), capped at the max. */
+        long valueAt(double q) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(q * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestIn(i), maxNanos);
+            }
+            return maxNanos;
+        }
+    }
+
+    /** Bucket of a non-negative value: linear below 2^SUB_BITS, then HALF buckets per power of two. */
+    static int bucket(long v) {
+        if (v < (1 << SUB_BITS)) return (int) v;
+        int shift = 64 - SUB_BITS - Long.numberOfLeadingZeros(v);
+        return shift * HALF + (int) (v >>> shift);
+    }
+
+    /** Largest value that falls into bucket i. */
+    static long highestIn(int i) {
+        if (i < (1 << SUB_BITS)) return i;
+        int shift = i / HALF - 1;
+        long top = i - (long) shift * HALF;
+        return ((top + 1) << shift) - 1;
+    }
+
+    static List<Snapshot> snapshots() {
+        List<Snapshot> out = new ArrayList<Snapshot>(HISTOGRAMS.size());
+        for (Histogram h : HISTOGRAMS) out.add(h.snapshot());
+        return out;
+    }
+
+    static void reset() {
+        for (Histogram h : HISTOGRAMS) h.reset();
+    }
+
+    /** All counters and histogram summaries (times in microseconds) as one JSON object. */
+    static String toJson() {
+        StringBuilder sb = new StringBuilder(2048);
+        sb.append("{\"uptimeMillis\":").append(System.currentTimeMillis() - START_MILLIS);
+        sb.append(",\"counters\":{");
+        for (int i = 0; i < COUNTERS.size(); i++) {
+            Counter c = COUNTERS.get(i);
+            if (i > 0) sb.append(',');
+            sb.append('"').append(c.name).append("\":").append(c.get());
+        }
+        sb.append("},\"latencyMicros\":{");
+        List<Snapshot> snaps = snapshots();
+        for (int i = 0; i < snaps.size(); i++) {
+            Snapshot s = snaps.get(i);
+            if (i > 0) sb.append(',');
+            sb.append('"').append(s.name).append("\":{\"count\":").append(s.count)
+              .append(",\"mean\":").append(micros(s.meanNanos()))
+              .append(",\"p50\":").append(micros(s.valueAt(0.50)))
+              .append(",\"p90\":").append(micros(s.valueAt(0.90)))
+              .append(",\"p99\":").append(micros(s.valueAt(0.99)))
+              .append(",\"p999\":").append(micros(s.valueAt(0.999)))
+              .append(",\"max\":").append(micros(s.maxNanos)).append('}');
+        }
+        return sb.append("}}").toString();
+    }
+
+    private static String micros(double nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000);
+    }
+
+    /**
+     * Registers the MBean and, if quiz.metrics.file is set, starts rewriting that
+     * file every quiz.metrics.intervalSeconds (default 10). Idempotent.
+     */
+    static void start() {
+        if (!STARTED.compareAndSet(false, true)) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MBean(), new ObjectName("QuizApp:type=Metrics"));
+        } catch (Exception e) {
+            System.err.println("Metrics MBean not registered: " + e.getMessage());
+        }
+        String file = System.getProperty("quiz.metrics.file");
+        if (file == null || file.isEmpty()) return;
+        final Path target = Paths.get(file);
+        final long interval = Math.max(1, Long.getLong("quiz.metrics.intervalSeconds", 10)) * 1000;
+        Thread dumper = new Thread(new Runnable() {
+            @Override public void run() {
+                while (true) {
+                    try {
+                        Thread.sleep(interval);
+                        writeJson(target);
+                    } catch (InterruptedException e) {
+                        return;
+                    } catch (IOException e) {
+                        System.err.println("Could not write " + target + ": " + e.getMessage());
+                    }
+                }
+            }
+        }, "metrics-dump");
+        dumper.setDaemon(true);
+        dumper.start();
+    }
+
+    /** Writes toJson() to target via a temp file, so readers never see half a dump. */
+    static void writeJson(Path target) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(tmp, (toJson() + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ---- Swing thread ----
+
+    /** Pushes the timing EventQueue and starts its stall watchdog. Idempotent; any thread. */
+    static void installEdtMonitor() {
+        if (!EDT_INSTALLED.compareAndSet(false, true)) return;
+        long stallMillis = Long.getLong("quiz.metrics.edtStallMillis", 100);
+        EdtMonitor monitor = new EdtMonitor(stallMillis * 1000000L);
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(monitor);
+        monitor.startWatchdog(Math.max(10, stallMillis / 2));
+    }
+
+    /**
+     * Times each dispatched event. An event counts as a stall only if nothing else
+     * was dispatched while it ran, so a modal dialog (which pumps events from
+     * inside its caller's event) is not mistaken for one.
+     */
+    static final class EdtMonitor extends EventQueue {
+        private final long stallNanos;
+        private final AtomicLong dispatches = new AtomicLong();
+        private volatile long runningSince;     // start of the innermost running dispatch, 0 when idle
+        private volatile Thread edt;
+
+        EdtMonitor(long stallNanos) { this.stallNanos = stallNanos; }
+
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            long seq = dispatches.incrementAndGet();
+            long t0 = System.nanoTime();
+            long outer = runningSince;
+            if (edt == null) edt = Thread.currentThread();
+            runningSince = t0;
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                long took = System.nanoTime() - t0;
+                runningSince = outer == 0 ? 0 : System.nanoTime(); // the outer event resumes now
+                EDT_DISPATCH.record(took);
+                if (took >= stallNanos && dispatches.get() == seq) EDT_STALLS.increment();
+            }
+        }
+
+        /** Prints the Swing thread's stack once for each dispatch stuck past the threshold. */
+        void startWatchdog(final long periodMillis) {
+            Thread t = new Thread(new Runnable() {
+                @Override public void run() {
+                    long reported = 0;
+                    while (true) {
+                        try {
+                            Thread.sleep(periodMillis);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        long since = runningSince, seq = dispatches.get();
+                        Thread thread = edt;
+                        if (since == 0 || thread == null || seq == reported) continue;
+                        long stuck = System.nanoTime() - since;
+                        if (stuck < stallNanos) continue;
+                        reported = seq;
+                        StringBuilder sb = new StringBuilder("EDT stalled for ")
+                                .append(stuck / 1000000).append(" ms:\n");
+                        StackTraceElement[] stack = thread.getStackTrace();
+                        for (int i = 0; i < Math.min(stack.length, 25); i++) sb.append("\tat ").append(stack[i]).append('\n');
+                        System.err.print(sb);
+                    }
+                }
+            }, "edt-watchdog");
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    // ---- JMX ----
+
+    /**
+     * Counters as Long attributes and, per histogram, <name>Count plus
+     * <name>{Mean,P50,P99,P999,Max}Micros as Double attributes; operations
+     * toJson and reset.
+     */
+    private static final class MBean implements DynamicMBean {
+        private static final String[] STATS = { "Count", "MeanMicros", "P50Micros", "P99Micros", "P999Micros", "MaxMicros" };
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            for (Counter c : COUNTERS) if (c.name.equals(attribute)) return c.get();
+            for (Histogram h : HISTOGRAMS) {
+                if (!attribute.startsWith(h.name)) continue;
+                String stat = attribute.substring(h.name.length());
+                Snapshot s = h.snapshot();
+                switch (stat) {
+                    case "Count": return s.count;
+                    case "MeanMicros": return s.meanNanos() / 1000;
+                    case "P50Micros": return s.valueAt(0.50) / 1000.0;
+                    case "P99Micros": return s.valueAt(0.99) / 1000.0;
+                    case "P999Micros": return s.valueAt(0.999) / 1000.0;
+                    case "MaxMicros": return s.maxNanos / 1000.0;
+                    default:
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String a : attributes) {
+                try {
+                    list.add(new Attribute(a, getAttribute(a)));
+                } catch (AttributeNotFoundException ignore) {}
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            if ("toJson".equals(actionName)) return toJson();
+            if ("reset".equals(actionName)) {
+                reset();
+                return null;
+            }
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attrs = new ArrayList<MBeanAttributeInfo>();
+            for (Counter c : COUNTERS) {
+                attrs.add(new MBeanAttributeInfo(c.name, "java.lang.Long", c.name, true, false, false));
+            }
+            for (Histogram h : HISTOGRAMS) {
+                for (String stat : STATS) {
+                    String type = "Count".equals(stat) ? "java.lang.Long" : "java.lang.Double";
+                    attrs.add(new MBeanAttributeInfo(h.name + stat, type, h.name + " latency", true, false, false));
+                }
+            }
+            MBeanOperationInfo[] ops = {
+                new MBeanOperationInfo("toJson", "All metrics as JSON", new MBeanParameterInfo[0],
+                        "java.lang.String", MBeanOperationInfo.INFO),
+                new MBeanOperationInfo("reset", "Clear the latency histograms", new MBeanParameterInfo[0],
+                        "void", MBeanOperationInfo.ACTION)
+            };
+            return new MBeanInfo(Metrics.class.getName(), "Quiz lifecycle metrics",
+                    attrs.toArray(new MBeanAttributeInfo[0]), null, ops, null);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+import java.util.List;
+
+/*
+ * Read-only, index-addressable view of a question bank. Implementations are
+ * immutable once built, so a bank can be shared between threads and sessions
+ * without locking; a reload produces a new bank rather than changing this one.
+ */
+interface QuestionBank {
+    /** Number of questions in the bank. */
+    int size();
+
+    /** Question i (0-based). */
+    Question get(int i);
+
+    /** Type of question i; may be cheaper than get(i).getType(). */
+    QuestionType typeAt(int i);
+
+    /** Text of question i; may be cheaper than get(i).getQuestionText(). */
+    default String textAt(int i) { return get(i).getQuestionText(); }
+
+    /** Tags of question i; may be cheaper than get(i).getTags(). */
+    default String[] tagsAt(int i) { return get(i).getTags(); }
+
+    /** Heap-backed bank over an already parsed list. */
+    static QuestionBank of(List<Question> questions) {
+        final Question[] items = questions.toArray(new Question[0]);
+        return new QuestionBank() {
+            @Override public int size() { return items.length; }
+            @Override public Question get(int i) { return items[i]; }
+            @Override public QuestionType typeAt(int i) { return items[i].getType(); }
+        };
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/*
+ * Which questions a quiz may be drawn from: those carrying every listed tag,
+ * of any listed type (any type if none is listed), whose text contains every
+ * listed word. Written as a one-line spec, e.g.
+ *
+ *   tag:java tag:inheritance type:mcq override
+ *
+ * Tags are compared after normalizeTag(); words are matched whole, ignoring
+ * case and punctuation (see words()).
+ */
+final class QuestionFilter {
+    static final QuestionFilter ALL = new QuestionFilter(Collections.<String>emptyList(),
+            Collections.<QuestionType>emptyList(), Collections.<String>emptyList());
+
+    final Set<String> tags;
+    final Set<QuestionType> types;
+    final Set<String> words;
+
+    QuestionFilter(Collection<String> tags, Collection<QuestionType> types, Collection<String> words) {
+        Set<String> t = new LinkedHashSet<String>();
+        for (String tag : tags) {
+            String n = normalizeTag(tag);
+            if (!n.isEmpty()) t.add(n);
+        }
+        Set<String> w = new LinkedHashSet<String>();
+        for (String word : words) w.addAll(words(word));
+        this.tags = Collections.unmodifiableSet(t);
+        this.types = types.isEmpty() ? Collections.<QuestionType>emptySet()
+                : Collections.unmodifiableSet(EnumSet.copyOf(types));
+        this.words = Collections.unmodifiableSet(w);
+    }
+
+    /**
+     * Parses a spec of space-separated terms: tag:T (or category:T), type:MCQ|TF|FIB
+     * and plain words. tag: and type: take comma-separated lists (tag:java,oop
+     * needs both tags, type:mcq,tf allows either type). A null or blank spec
+     * matches everything.
+     */
+    static QuestionFilter parse(String spec) {
+        if (spec == null || spec.trim().isEmpty()) return ALL;
+        List<String> tags = new ArrayList<String>();
+        List<QuestionType> types = new ArrayList<QuestionType>();
+        List<String> words = new ArrayList<String>();
+        for (String term : spec.trim().split("\\s+")) {
+            String lower = term.toLowerCase(Locale.ROOT);
+            if (lower.startsWith("tag:")) {
+                Collections.addAll(tags, term.substring(4).split(","));
+            } else if (lower.startsWith("category:")) { // categories are stored as tags
+                Collections.addAll(tags, term.substring(9).split(","));
+            } else if (lower.startsWith("type:")) {
+                for (String t : term.substring(5).split(",")) {
+                    if (t.isEmpty()) continue;
+                    try {
+                        types.add(QuestionType.valueOf(t.toUpperCase(Locale.ROOT)));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown question type '" + t + "' (use MCQ, TF or FIB)");
+                    }
+                }
+            } else {
+                words.add(term);
+            }
+        }
+        return new QuestionFilter(tags, types, words);
+    }
+
+    boolean isEmpty() {
+        return tags.isEmpty() && types.isEmpty() && words.isEmpty();
+    }
+
+    /** Tests one question directly, without an index. */
+    boolean matches(Question q) {
+        if (!types.isEmpty() && !types.contains(q.getType())) return false;
+        if (!tags.isEmpty()) {
+            Set<String> has = new LinkedHashSet<String>();
+            Collections.addAll(has, q.getTags());
+            if (!has.containsAll(tags)) return false;
+        }
+        return words.isEmpty() || words(q.getQuestionText()).containsAll(words);
+    }
+
+    /** Lower case, trimmed, spaces inside as '-': "Object  Oriented" -> "object-oriented". */
+    static String normalizeTag(String tag) {
+        return tag.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", "-");
+    }
+
+    /** The distinct words of text: runs of letters and digits, lower-cased, in order. */
+    static Set<String> words(String text) {
+        Set<String> out = new LinkedHashSet<String>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                out.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (String t : tags) sb.append(sb.length() == 0 ? "" : " ").append("tag:").append(t);
+        if (!types.isEmpty()) {
+            sb.append(sb.length() == 0 ? "" : " ").append("type:");
+            int i = 0;
+            for (QuestionType t : types) sb.append(i++ == 0 ? "" : ",").append(t);
+        }
+        for (String w : words) sb.append(sb.length() == 0 ? "" : " ").append(w);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,149 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/*
+ * Inverted index over one QuestionBank snapshot: for every tag, question type
+ * and word of question text, the ids of the questions that have it, as an
+ * IdBitmap. Built in one pass over the bank; bank.textAt/tagsAt let compiled
+ * banks skip decoding options. A filter is answered by intersecting the
+ * bitmaps of its terms, smallest first, and a quiz is drawn from the result by
+ * rank, so sampling costs the same whether the filter matches ten questions or
+ * a million. Immutable; a reload builds a new index (see SharedQuestionBank).
+ */
+class QuestionIndex {
+    private final QuestionBank bank;
+    private final Map<String, IdBitmap> tags;
+    private final Map<String, IdBitmap> words;
+    private final EnumMap<QuestionType, IdBitmap> types;
+    private final IdBitmap all;
+
+    private QuestionIndex(QuestionBank bank, Map<String, IdBitmap> tags, Map<String, IdBitmap> words,
+                          EnumMap<QuestionType, IdBitmap> types) {
+        this.bank = bank;
+        this.tags = tags;
+        this.words = words;
+        this.types = types;
+        IdBitmap a = IdBitmap.EMPTY;
+        for (IdBitmap b : types.values()) a = a.or(b);
+        this.all = a;
+    }
+
+    static QuestionIndex build(QuestionBank bank) {
+        Map<String, Postings> tagPostings = new HashMap<String, Postings>();
+        Map<String, Postings> wordPostings = new HashMap<String, Postings>();
+        EnumMap<QuestionType, Postings> typePostings = new EnumMap<QuestionType, Postings>(QuestionType.class);
+        for (QuestionType t : QuestionType.values()) typePostings.put(t, new Postings());
+        StringBuilder word = new StringBuilder(32);
+        for (int id = 0, n = bank.size(); id < n; id++) {
+            typePostings.get(bank.typeAt(id)).add(id);
+            for (String tag : bank.tagsAt(id)) postings(tagPostings, tag).add(id);
+            String text = bank.textAt(id);
+            for (int i = 0; i <= text.length(); i++) {
+                char c = i < text.length() ? text.charAt(i) : ' ';
+                if (Character.isLetterOrDigit(c)) {
+                    word.append(c);
+                } else if (word.length() > 0) {
+                    postings(wordPostings, word.toString().toLowerCase(Locale.ROOT)).add(id);
+                    word.setLength(0);
+                }
+            }
+        }
+        EnumMap<QuestionType, IdBitmap> types = new EnumMap<QuestionType, IdBitmap>(QuestionType.class);
+        for (Map.Entry<QuestionType, Postings> e : typePostings.entrySet()) types.put(e.getKey(), e.getValue().toBitmap());
+        return new QuestionIndex(bank, bitmaps(tagPostings), bitmaps(wordPostings), types);
+    }
+
+    /** The snapshot this index was built from; ids are indices into it. */
+    QuestionBank getBank() { return bank; }
+
+    /** Ids of the questions in the bank matching filter. */
+    IdBitmap matching(QuestionFilter filter) {
+        List<IdBitmap> terms = new ArrayList<IdBitmap>();
+        for (String t : filter.tags) terms.add(lookup(tags, t));
+        for (String w : filter.words) terms.add(lookup(words, w));
+        if (!filter.types.isEmpty()) {
+            IdBitmap anyType = IdBitmap.EMPTY;
+            for (QuestionType t : filter.types) anyType = anyType.or(types.get(t));
+            terms.add(anyType);
+        }
+        if (terms.isEmpty()) return all;
+        Collections.sort(terms, BY_CARDINALITY); // intermediate results only shrink
+        IdBitmap result = terms.get(0);
+        for (int i = 1; i < terms.size() && !result.isEmpty(); i++) result = result.and(terms.get(i));
+        return result;
+    }
+
+    /** Up to n distinct ids matching filter, chosen uniformly by sampler, in random order. */
+    int[] sample(QuestionFilter filter, int n, QuestionSampler sampler) {
+        IdBitmap m = matching(filter);
+        int[] picks = sampler.sampleIndices(m.cardinality(), n);
+        for (int i = 0; i < picks.length; i++) picks[i] = m.select(picks[i]);
+        return picks;
+    }
+
+    /** Every tag with the number of questions carrying it, alphabetically. */
+    SortedMap<String, Integer> tagCounts() {
+        SortedMap<String, Integer> out = new TreeMap<String, Integer>();
+        for (Map.Entry<String, IdBitmap> e : tags.entrySet()) out.put(e.getKey(), e.getValue().cardinality());
+        return out;
+    }
+
+    int distinctWords() { return words.size(); }
+
+    /** Approximate heap held by the posting bitmaps. */
+    long sizeInBytes() {
+        long bytes = all.sizeInBytes();
+        for (IdBitmap b : tags.values()) bytes += b.sizeInBytes();
+        for (IdBitmap b : words.values()) bytes += b.sizeInBytes();
+        for (IdBitmap b : types.values()) bytes += b.sizeInBytes();
+        return bytes;
+    }
+
+    private static IdBitmap lookup(Map<String, IdBitmap> map, String term) {
+        IdBitmap b = map.get(term);
+        return b == null ? IdBitmap.EMPTY : b;
+    }
+
+    private static final Comparator<IdBitmap> BY_CARDINALITY = new Comparator<IdBitmap>() {
+        @Override public int compare(IdBitmap a, IdBitmap b) {
+            return Integer.compare(a.cardinality(), b.cardinality());
+        }
+    };
+
+    private static Postings postings(Map<String, Postings> map, String term) {
+        Postings p = map.get(term);
+        if (p == null) map.put(term, p = new Postings());
+        return p;
+    }
+
+    private static Map<String, IdBitmap> bitmaps(Map<String, Postings> postings) {
+        Map<String, IdBitmap> out = new HashMap<String, IdBitmap>(postings.size() * 2);
+        for (Map.Entry<String, Postings> e : postings.entrySet()) out.put(e.getKey(), e.getValue().toBitmap());
+        return out;
+    }
+
+    /** Ascending ids of one term while building; a repeat of the last id is dropped. */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) return;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        IdBitmap toBitmap() {
+            return IdBitmap.of(ids, size);
+        }
+    }
+}
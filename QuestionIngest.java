@@ -0,0 +1,397 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Loads every bank file in a directory (questions*.txt by default) into one
+ * CompactQuestionBank. Files are parsed in parallel, one task per file on up
+ * to one thread per core, and merged in file name order, so the bank and the
+ * report are the same whatever the thread timing.
+ *
+ * Every block is validated by QuestionReader; invalid ones are left out. While
+ * merging, each question's content (type, text, options or answer and correct
+ * index, compared ignoring case and spacing) is hashed: a question whose content
+ * was already seen, in the same or an earlier file, is dropped as a duplicate.
+ * A question that repeats an earlier question's text with a different answer
+ * is kept but reported as a conflict, since one of the two keys is likely
+ * wrong. The Report lists all of it per file, as text or JSON.
+ *
+ * Usage: java QuestionIngest <dir> [--glob G] [--threads N] [--json FILE] [--out FILE]
+ *   --out writes the merged bank as a single questions file
+ *   exit status 1 if any block was invalid, duplicated or conflicting
+ */
+class QuestionIngest {
+    static final String DEFAULT_GLOB = "questions*.txt";
+
+    /** One finding: kind is invalid, duplicate, conflict or unreadable. */
+    static final class Issue {
+        final String file;
+        final int line;
+        final String kind;
+        final String message;
+
+        Issue(String file, int line, String kind, String message) {
+            this.file = file;
+            this.line = line;
+            this.kind = kind;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return file + ":" + line + ": " + kind + ": " + message;
+        }
+    }
+
+    /** Counts for one file: blocks = added + invalid + duplicates (conflicts count as added). */
+    static final class FileReport {
+        final String file;
+        final long bytes;
+        int blocks, added, invalid, duplicates, conflicts;
+        String error; // the file could not be read to the end
+
+        FileReport(String file, long bytes) {
+            this.file = file;
+            this.bytes = bytes;
+        }
+    }
+
+    static final class Report {
+        final List<FileReport> files;
+        final List<Issue> issues;
+        final int questions;
+        final long millis;
+
+        Report(List<FileReport> files, List<Issue> issues, int questions, long millis) {
+            this.files = Collections.unmodifiableList(files);
+            this.issues = Collections.unmodifiableList(issues);
+            this.questions = questions;
+            this.millis = millis;
+        }
+
+        boolean isClean() { return issues.isEmpty(); }
+
+        int count(String kind) {
+            int n = 0;
+            for (Issue i : issues) if (i.kind.equals(kind)) n++;
+            return n;
+        }
+
+        /** One line per issue, then one per file and a total. */
+        String summary() {
+            StringBuilder sb = new StringBuilder();
+            for (Issue i : issues) sb.append(i).append('\n');
+            for (FileReport f : files) {
+                sb.append(String.format("%-32s %7d blocks %7d added %5d invalid %5d duplicate %5d conflict%s%n",
+                        f.file, f.blocks, f.added, f.invalid, f.duplicates, f.conflicts,
+                        f.error == null ? "" : "  (" + f.error + ")"));
+            }
+            sb.append(String.format("%d questions from %d files in %d ms (%d invalid, %d duplicate, %d conflict)%n",
+                    questions, files.size(), millis, count("invalid"), count("duplicate"), count("conflict")));
+            return sb.toString();
+        }
+
+        String toJson() {
+            StringBuilder sb = new StringBuilder(256 + 96 * issues.size());
+            sb.append("{\"questions\":").append(questions).append(",\"millis\":").append(millis)
+              .append(",\"invalid\":").append(count("invalid"))
+              .append(",\"duplicate\":").append(count("duplicate"))
+              .append(",\"conflict\":").append(count("conflict"))
+              .append(",\"files\":[");
+            for (int i = 0; i < files.size(); i++) {
+                FileReport f = files.get(i);
+                if (i > 0) sb.append(',');
+                sb.append("{\"file\":").append(QuizServer.json(f.file)).append(",\"bytes\":").append(f.bytes)
+                  .append(",\"blocks\":").append(f.blocks).append(",\"added\":").append(f.added)
+                  .append(",\"invalid\":").append(f.invalid).append(",\"duplicate\":").append(f.duplicates)
+                  .append(",\"conflict\":").append(f.conflicts)
+                  .append(",\"error\":").append(QuizServer.json(f.error)).append('}');
+            }
+            sb.append("],\"issues\":[");
+            for (int i = 0; i < issues.size(); i++) {
+                Issue is = issues.get(i);
+                if (i > 0) sb.append(',');
+                sb.append("{\"file\":").append(QuizServer.json(is.file)).append(",\"line\":").append(is.line)
+                  .append(",\"kind\":").append(QuizServer.json(is.kind))
+                  .append(",\"message\":").append(QuizServer.json(is.message)).append('}');
+            }
+            return sb.append("]}").toString();
+        }
+    }
+
+    static final class Result {
+        final CompactQuestionBank bank;
+        final Report report;
+
+        Result(CompactQuestionBank bank, Report report) {
+            this.bank = bank;
+            this.report = report;
+        }
+    }
+
+    /** A file's accepted questions and the line each starts on, plus its invalid blocks. */
+    private static final class Parsed {
+        final List<Question> questions = new ArrayList<Question>();
+        final List<Integer> lines = new ArrayList<Integer>();
+        final List<Issue> invalid = new ArrayList<Issue>();
+        String error;
+    }
+
+    private static final Comparator<Issue> BY_LINE = new Comparator<Issue>() {
+        @Override public int compare(Issue a, Issue b) { return Integer.compare(a.line, b.line); }
+    };
+
+    /** Where a question was first seen, and its content hash. */
+    private static final class Seen {
+        final String file;
+        final int line;
+        final long content;
+
+        Seen(String file, int line, long content) {
+            this.file = file;
+            this.line = line;
+            this.content = content;
+        }
+    }
+
+    /** Bank files in dir matching glob, by name. */
+    static List<Path> bankFiles(Path dir, String glob) throws IOException {
+        List<Path> files = new ArrayList<Path>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, glob)) {
+            for (Path p : ds) if (Files.isRegularFile(p)) files.add(p);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    static Result ingest(Path dir) throws IOException {
+        return ingest(dir, DEFAULT_GLOB, Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    /**
+     * Ingests the files in dir matching glob on up to threads threads, reporting
+     * combined progress over all of them (may be null; calls are serialized).
+     */
+    static Result ingest(Path dir, String glob, int threads, final QuestionReader.ProgressListener progress)
+            throws IOException {
+        long t0 = System.nanoTime();
+        List<Path> files = bankFiles(dir, glob);
+        long total = 0;
+        for (Path f : files) total += Files.size(f);
+        final long totalBytes = total;
+        final AtomicLong readBytes = new AtomicLong();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, files.size())), new ThreadFactory() {
+            private final AtomicInteger n = new AtomicInteger();
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "question-ingest-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            List<Future<Parsed>> parsed = new ArrayList<Future<Parsed>>(files.size());
+            for (final Path f : files) {
+                parsed.add(pool.submit(new Callable<Parsed>() {
+                    @Override public Parsed call() {
+                        return parse(f, progress == null ? null : new QuestionReader.ProgressListener() {
+                            private long last;
+                            @Override public void progress(long bytesRead, long fileBytes) {
+                                long all = readBytes.addAndGet(bytesRead - last);
+                                last = bytesRead;
+                                synchronized (progress) {
+                                    progress.progress(all, totalBytes);
+                                }
+                            }
+                        });
+                    }
+                }));
+            }
+
+            // Merge in file order as files become ready; later files keep parsing meanwhile
+            CompactQuestionBank.Builder builder = new CompactQuestionBank.Builder();
+            Map<Long, Seen> byContent = new HashMap<Long, Seen>();
+            Map<Long, Seen> byText = new HashMap<Long, Seen>();
+            List<FileReport> reports = new ArrayList<FileReport>(files.size());
+            List<Issue> issues = new ArrayList<Issue>();
+            int questions = 0;
+            for (int i = 0; i < files.size(); i++) {
+                String name = files.get(i).getFileName().toString();
+                FileReport r = new FileReport(name, Files.size(files.get(i)));
+                Parsed p = get(parsed.get(i));
+                parsed.set(i, null); // let the file's questions go once merged
+                r.invalid = p.invalid.size();
+                r.error = p.error;
+                List<Issue> found = new ArrayList<Issue>(p.invalid);
+                if (p.error != null) found.add(new Issue(name, 0, "unreadable", p.error));
+                for (int k = 0; k < p.questions.size(); k++) {
+                    Question q = p.questions.get(k);
+                    int line = p.lines.get(k);
+                    long content = contentHash(q);
+                    Seen first = byContent.get(content);
+                    if (first != null) {
+                        r.duplicates++;
+                        found.add(new Issue(name, line, "duplicate", "same question as " + first.file + ":" + first.line));
+                        continue;
+                    }
+                    Seen here = new Seen(name, line, content);
+                    byContent.put(content, here);
+                    long text = textHash(q);
+                    Seen sameText = byText.get(text);
+                    if (sameText == null) {
+                        byText.put(text, here);
+                    } else {
+                        r.conflicts++;
+                        found.add(new Issue(name, line, "conflict", "same question as " + sameText.file + ":"
+                                + sameText.line + " with a different answer: " + q.getCorrectAnswerAsString()));
+                    }
+                    builder.add(q);
+                    r.added++;
+                    questions++;
+                }
+                r.blocks = r.added + r.invalid + r.duplicates;
+                reports.add(r);
+                Collections.sort(found, BY_LINE);
+                issues.addAll(found);
+            }
+            long millis = (System.nanoTime() - t0) / 1000000;
+            return new Result(builder.build(), new Report(reports, issues, questions, millis));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Parsed parse(Path file, QuestionReader.ProgressListener progress) {
+        final Parsed p = new Parsed();
+        final String name = file.getFileName().toString();
+        QuestionReader.ErrorListener errors = new QuestionReader.ErrorListener() {
+            @Override public void malformedBlock(int line, String message) {
+                p.invalid.add(new Issue(name, line, "invalid", message));
+            }
+        };
+        try (QuestionReader reader = QuestionReader.open(file.toString(), errors, progress)) {
+            Question q;
+            while ((q = reader.next()) != null) {
+                p.questions.add(q);
+                p.lines.add(reader.getBlockLine());
+            }
+        } catch (IOException e) {
+            // e.g. not UTF-8: keep what was read before the error
+            p.error = e.getClass().getSimpleName() + (e.getMessage() == null ? "" : ": " + e.getMessage());
+        }
+        return p;
+    }
+
+    private static Parsed get(Future<Parsed> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading questions", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Loading questions failed", e.getCause());
+        }
+    }
+
+    // ---- content hashing: FNV-1a over normalized fields ----
+
+    /** Type, text and everything that decides the right answer. */
+    static long contentHash(Question q) {
+        long h = textHash(q);
+        if (q instanceof MCQQuestion) {
+            MCQQuestion m = (MCQQuestion) q;
+            for (String opt : m.getOptions()) h = fnv(h, normalize(opt));
+            h = fnv(h, String.valueOf(m.getCorrectIndex()));
+        } else if (q instanceof TrueFalseQuestion) {
+            h = fnv(h, String.valueOf(((TrueFalseQuestion) q).getCorrect()));
+        } else {
+            h = fnv(h, normalize(((FillBlankQuestion) q).getAnswer()));
+        }
+        return h;
+    }
+
+    /** Type and question text only. */
+    static long textHash(Question q) {
+        return fnv(fnv(0xcbf29ce484222325L, q.getType().name()), normalize(q.getQuestionText()));
+    }
+
+    /** Lower case, trimmed, whitespace runs collapsed to one space. */
+    static String normalize(String s) {
+        return s.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static long fnv(long h, String s) {
+        for (int i = 0; i < s.length(); i++) h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        return (h ^ 0x1F) * 0x100000001b3L; // field separator, so "ab","c" != "a","bc"
+    }
+
+    // ---- writing a merged bank ----
+
+    /** Writes bank in the questions.txt block format, tags included. */
+    static void write(QuestionBank bank, Writer w) throws IOException {
+        for (int i = 0; i < bank.size(); i++) {
+            Question q = bank.get(i);
+            String[] tags = q.getTags();
+            if (tags.length > 0) w.write("TAGS: " + String.join(", ", tags) + "\n");
+            w.write(q.getType().name() + "\n" + q.getQuestionText() + "\n");
+            if (q instanceof MCQQuestion) {
+                MCQQuestion m = (MCQQuestion) q;
+                for (String opt : m.getOptions()) w.write(opt + "\n");
+                w.write(m.getCorrectIndex() + "\n");
+            } else if (q instanceof TrueFalseQuestion) {
+                w.write((((TrueFalseQuestion) q).getCorrect() ? "True" : "False") + "\n");
+            } else {
+                w.write(((FillBlankQuestion) q).getAnswer() + "\n");
+            }
+            w.write("\n");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: java QuestionIngest <dir> [--glob G] [--threads N] [--json FILE] [--out FILE]");
+            System.exit(2);
+        }
+        Path dir = Paths.get(args[0]);
+        String glob = DEFAULT_GLOB, json = null, out = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--glob": glob = args[i + 1]; break;
+                case "--threads": threads = Integer.parseInt(args[i + 1]); break;
+                case "--json": json = args[i + 1]; break;
+                case "--out": out = args[i + 1]; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        Result r = ingest(dir, glob, threads, null);
+        System.out.print(r.report.summary());
+        if (json != null) Files.write(Paths.get(json), r.report.toJson().getBytes(StandardCharsets.UTF_8));
+        if (out != null) {
+            try (BufferedWriter w = Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8)) {
+                write(r.bank, w);
+            }
+        }
+        System.exit(r.report.isClean() ? 0 : 1);
+    }
+}
@@ -0,0 +1,225 @@
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/*
+ * Streaming reader for the questions.txt block format (see QuizSwingApp.java).
+ * Reads one block at a time through a buffered channel, so memory stays flat
+ * no matter how large the bank is. Blocks that cannot be parsed or would not
+ * grade properly (empty question or option, MCQ index outside 1-4, TF value
+ * other than True/False, empty FIB answer) are skipped and reported to an
+ * ErrorListener together with the line number they start on.
+ * TAGS: and CATEGORY: lines before a block become that question's tags.
+ */
+class QuestionReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String[] TAG_PREFIXES = { "TAGS:", "CATEGORY:" };
+
+    /** Receives one call per malformed block or stray line (1-based line numbers). */
+    interface ErrorListener {
+        void malformedBlock(int line, String message);
+    }
+
+    /** Told how many bytes of the file have been read so far, on the reading thread. */
+    interface ProgressListener {
+        void progress(long bytesRead, long totalBytes);
+    }
+
+    /** Listener that drops all reports, matching the old silent-skip behaviour. */
+    static final ErrorListener IGNORE = new ErrorListener() {
+        @Override public void malformedBlock(int line, String message) { }
+    };
+
+    private final BufferedReader in;
+    private final ErrorListener errors;
+    private int lineNumber = 0; // lines consumed so far
+    private int blockLine = 0;  // line of the type header of the last returned question
+    private Set<String> pendingTags; // from TAGS:/CATEGORY: lines since the last block, or null
+
+    QuestionReader(Reader reader, ErrorListener errors) {
+        this.in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, BUFFER_SIZE);
+        this.errors = errors == null ? IGNORE : errors;
+    }
+
+    static QuestionReader open(String path, ErrorListener errors) throws IOException {
+        return open(path, errors, null);
+    }
+
+    /** As open(path, errors), reporting read progress to progress (may be null). */
+    static QuestionReader open(String path, ErrorListener errors, ProgressListener progress) throws IOException {
+        InputStream in = Files.newInputStream(Paths.get(path));
+        if (progress != null) in = new CountingInputStream(in, Files.size(Paths.get(path)), progress);
+        Reader r = new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder());
+        return new QuestionReader(new BufferedReader(r, BUFFER_SIZE), errors);
+    }
+
+    /** Line number of the type header ("MCQ", "TF", "FIB") of the last question returned. */
+    int getBlockLine() { return blockLine; }
+
+    /** Number of lines consumed so far. */
+    int getLineNumber() { return lineNumber; }
+
+    /**
+     * Returns the next well-formed question, or null at end of input.
+     * Malformed blocks are reported and skipped.
+     */
+    Question next() throws IOException {
+        String line;
+        while ((line = readLine()) != null) {
+            String typeLine = line.trim();
+            if (typeLine.isEmpty()) continue;
+            String tagList = tagList(typeLine);
+            if (tagList != null) {
+                addTags(tagList);
+                continue;
+            }
+            int start = lineNumber;
+            String[] tags = takeTags();
+            if ("MCQ".equalsIgnoreCase(typeLine)) {
+                String q = readLine();
+                String[] opts = new String[4];
+                for (int k = 0; k < 4; k++) opts[k] = readLine();
+                String idx = readLine();
+                if (idx == null) {
+                    errors.malformedBlock(start, "MCQ block truncated at end of file");
+                    return null;
+                }
+                int correct;
+                try {
+                    correct = Integer.parseInt(idx.trim());
+                } catch (NumberFormatException e) {
+                    errors.malformedBlock(start, "MCQ correct index is not a number: '" + idx.trim() + "'");
+                    continue;
+                }
+                if (correct < 1 || correct > 4) {
+                    errors.malformedBlock(start, "MCQ correct index " + correct + " is outside 1-4");
+                    continue;
+                }
+                if (isBlank(q)) {
+                    errors.malformedBlock(start, "MCQ question text is empty");
+                    continue;
+                }
+                int blank = -1;
+                for (int k = 0; k < 4 && blank < 0; k++) if (isBlank(opts[k])) blank = k;
+                if (blank >= 0) {
+                    errors.malformedBlock(start, "MCQ option " + (blank + 1) + " is empty");
+                    continue;
+                }
+                blockLine = start;
+                return new MCQQuestion(q, opts, correct).withTags(tags);
+            } else if ("TF".equalsIgnoreCase(typeLine)) {
+                String q = readLine();
+                String tf = readLine();
+                if (tf == null) {
+                    errors.malformedBlock(start, "TF block truncated at end of file");
+                    return null;
+                }
+                if (!tf.trim().equalsIgnoreCase("true") && !tf.trim().equalsIgnoreCase("false")) {
+                    errors.malformedBlock(start, "TF answer must be True or False, not '" + tf.trim() + "'");
+                    continue;
+                }
+                if (isBlank(q)) {
+                    errors.malformedBlock(start, "TF question text is empty");
+                    continue;
+                }
+                blockLine = start;
+                return new TrueFalseQuestion(q, tf.trim().equalsIgnoreCase("true")).withTags(tags);
+            } else if ("FIB".equalsIgnoreCase(typeLine)) {
+                String q = readLine();
+                String ans = readLine();
+                if (ans == null) {
+                    errors.malformedBlock(start, "FIB block truncated at end of file");
+                    return null;
+                }
+                if (isBlank(ans)) {
+                    errors.malformedBlock(start, "FIB answer is empty");
+                    continue;
+                }
+                if (isBlank(q)) {
+                    errors.malformedBlock(start, "FIB question text is empty");
+                    continue;
+                }
+                blockLine = start;
+                return new FillBlankQuestion(q, ans).withTags(tags);
+            } else {
+                errors.malformedBlock(start, "Unknown block type: '" + typeLine + "'");
+            }
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+
+    /** The list after "TAGS:" or "CATEGORY:" (any case), or null if line is neither. */
+    private static String tagList(String line) {
+        for (String prefix : TAG_PREFIXES) {
+            if (line.regionMatches(true, 0, prefix, 0, prefix.length())) return line.substring(prefix.length());
+        }
+        return null;
+    }
+
+    private void addTags(String list) {
+        if (pendingTags == null) pendingTags = new LinkedHashSet<String>();
+        for (String tag : list.split(",")) {
+            String t = QuestionFilter.normalizeTag(tag);
+            if (!t.isEmpty()) pendingTags.add(t);
+        }
+    }
+
+    /** Tags for the block starting now; they apply to it even if it turns out malformed. */
+    private String[] takeTags() {
+        if (pendingTags == null) return Question.NO_TAGS;
+        String[] tags = pendingTags.toArray(new String[0]);
+        pendingTags = null;
+        return tags;
+    }
+
+    private String readLine() throws IOException {
+        String line = in.readLine();
+        if (line != null) lineNumber++;
+        return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /** Reports bytes read after every chunk; the decoder reads in chunks of several KB. */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final long total;
+        private final ProgressListener progress;
+        private long read;
+
+        CountingInputStream(InputStream in, long total, ProgressListener progress) {
+            super(in);
+            this.total = total;
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) progress.progress(++read, total);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) progress.progress(read += n, total);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/*
+ * Picks quiz questions uniformly at random in a single streaming pass over the
+ * bank (reservoir sampling, Algorithm R). Memory and time per pick depend on the
+ * number of questions requested, not on the size of questions.txt. An indexed
+ * QuestionBank can instead be sampled by index without reading the rest of it.
+ * Pass a seed to make the selection reproducible.
+ */
+class QuestionSampler {
+    private final Random random;
+
+    QuestionSampler(Random random) {
+        this.random = random;
+    }
+
+    QuestionSampler(long seed) {
+        this(new Random(seed));
+    }
+
+    /** Returns up to n questions chosen uniformly from the file, in random order. */
+    List<Question> sample(String path, int n) throws IOException {
+        Reservoir r = new Reservoir(n, random);
+        QuestionLoader.stream(path, r, QuestionLoader.stderrListener(path));
+        return r.drain();
+    }
+
+    /**
+     * Returns up to n distinct questions of a bank chosen uniformly by index, in
+     * random order. Only the chosen entries are decoded.
+     */
+    List<Question> sample(QuestionBank bank, int n) {
+        int[] picks = sampleIndices(bank.size(), n);
+        List<Question> out = new ArrayList<Question>(picks.length);
+        for (int i : picks) out.add(bank.get(i));
+        return out;
+    }
+
+    /**
+     * Returns min(n, size) distinct indices in [0, size), chosen uniformly (Floyd's
+     * algorithm) and in random order. Costs O(n) regardless of size.
+     */
+    int[] sampleIndices(int size, int n) {
+        n = Math.max(0, Math.min(n, size));
+        Set<Integer> picked = new LinkedHashSet<Integer>(n * 2);
+        for (int j = size - n; j < size; j++) {
+            int t = random.nextInt(j + 1);
+            if (!picked.add(t)) picked.add(j);
+        }
+        int[] out = new int[n];
+        int k = 0;
+        for (int i : picked) out[k++] = i;
+        for (int i = n - 1; i > 0; i--) { // Fisher-Yates
+            int j = random.nextInt(i + 1);
+            int tmp = out[i]; out[i] = out[j]; out[j] = tmp;
+        }
+        return out;
+    }
+
+    /**
+     * Returns up to quotas.get(t) questions of every type t, each stratum sampled
+     * uniformly, shuffled together. Types without a quota are not selected; a
+     * stratum with fewer questions than its quota contributes all it has.
+     */
+    List<Question> sampleStratified(String path, Map<QuestionType, Integer> quotas) throws IOException {
+        final EnumMap<QuestionType, Reservoir> strata = new EnumMap<QuestionType, Reservoir>(QuestionType.class);
+        for (Map.Entry<QuestionType, Integer> e : quotas.entrySet()) {
+            strata.put(e.getKey(), new Reservoir(e.getValue(), random));
+        }
+        QuestionLoader.stream(path, new Consumer<Question>() {
+            @Override public void accept(Question q) {
+                Reservoir r = strata.get(q.getType());
+                if (r != null) r.accept(q);
+            }
+        }, QuestionLoader.stderrListener(path));
+
+        List<Question> out = new ArrayList<Question>();
+        for (Reservoir r : strata.values()) out.addAll(r.drain());
+        Collections.shuffle(out, random);
+        return out;
+    }
+
+    /** Fixed-size uniform reservoir; feed it with accept(), then drain() once. */
+    static class Reservoir implements Consumer<Question> {
+        private final Question[] slots;
+        private final Random random;
+        private long seen = 0;
+
+        Reservoir(int capacity, Random random) {
+            if (capacity < 0) throw new IllegalArgumentException("capacity < 0: " + capacity);
+            this.slots = new Question[capacity];
+            this.random = random;
+        }
+
+        @Override
+        public void accept(Question q) {
+            if (seen < slots.length) {
+                slots[(int) seen] = q;
+            } else {
+                long j = nextLong(seen + 1);
+                if (j < slots.length) slots[(int) j] = q;
+            }
+            seen++;
+        }
+
+        long getSeen() { return seen; }
+
+        /** Returns the sampled questions in random order (slot order alone is not uniform). */
+        List<Question> drain() {
+            int n = (int) Math.min(seen, slots.length);
+            List<Question> out = new ArrayList<Question>(n);
+            for (int i = 0; i < n; i++) out.add(slots[i]);
+            Collections.shuffle(out, random);
+            return out;
+        }
+
+        /** Uniform long in [0, bound); bound may exceed Integer.MAX_VALUE. */
+        private long nextLong(long bound) {
+            if (bound <= Integer.MAX_VALUE) return random.nextInt((int) bound);
+            long bits, val;
+            do {
+                bits = random.nextLong() >>> 1;
+                val = bits % bound;
+            } while (bits - val + (bound - 1) < 0L);
+            return val;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Headless quiz engine: starts sessions from the shared question bank, keeps
+ * the live ones, runs every session's question deadline on one shared
+ * TimingWheel, and records finished quizzes in the ResultStore and the
+ * leaderboard. Every graded answer also goes to the AnswerLog when one is
+ * configured (see AnswerAnalytics). In adaptive mode (quiz.adaptive=true or
+ * setAdaptive) questions are picked one by one by an AdaptiveSelector instead
+ * of being sampled uniformly up front. A QuestionFilter restricts a quiz to
+ * matching questions through the bank's QuestionIndex. It has no UI
+ * dependencies; the Swing frame is one client, and any number of sessions can
+ * run concurrently in one process. QuizSimulation drives it on a manual
+ * (virtual-time) wheel and clock with seeded randomness.
+ */
+class QuizEngine implements Closeable {
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final long TICK_MILLIS = 10;
+    private static final int WHEEL_SIZE = 512;
+
+    /** Told when the deadline of question questionIndex passes (on the wheel thread; keep it short). */
+    interface TimeUpListener {
+        void timeUp(QuizSession session, int questionIndex);
+    }
+
+    /** Grades the timed-out question directly; for clients with nothing to update. */
+    final TimeUpListener gradeOnTimeUp = new TimeUpListener() {
+        @Override public void timeUp(QuizSession session, int questionIndex) {
+            QuizEngine.this.timeUp(session, questionIndex);
+        }
+    };
+
+    private final String questionsFile;
+    private final int quizLength;
+    private final int secondsPerQuestion;
+    private final Leaderboard leaderboard;
+    private final ResultStore results;
+    private final AnswerLog answers; // null when answer logging is off
+    private final Clock clock; // result timestamps
+    private final AtomicLong nextId;
+    private final ConcurrentMap<Long, QuizSession> sessions = new ConcurrentHashMap<Long, QuizSession>();
+    private final TimingWheel timers;
+    private final AtomicReference<AdaptiveSelector> selector = new AtomicReference<AdaptiveSelector>();
+    private volatile boolean adaptive = Boolean.getBoolean("quiz.adaptive");
+
+    /** answersFile may be null to turn off per-answer logging. */
+    QuizEngine(String questionsFile, String resultsFile, String answersFile, int quizLength,
+               int secondsPerQuestion, int leaderboardLimit) {
+        this(questionsFile, resultsFile, answersFile, quizLength, secondsPerQuestion, leaderboardLimit,
+                new TimingWheel(TICK_MILLIS, WHEEL_SIZE), Clock.systemDefaultZone());
+    }
+
+    /**
+     * As above, running deadlines on timers (which the engine closes) and
+     * stamping results with clock's time; a simulation passes a manual wheel
+     * and a clock that follows it.
+     */
+    QuizEngine(String questionsFile, String resultsFile, String answersFile, int quizLength,
+               int secondsPerQuestion, int leaderboardLimit, TimingWheel timers, Clock clock) {
+        this.timers = timers;
+        this.clock = clock;
+        // Seeded from the clock so ids stay unique across restarts within one answer log
+        this.nextId = new AtomicLong(clock.millis() * 1000);
+        this.questionsFile = questionsFile;
+        this.quizLength = quizLength;
+        this.secondsPerQuestion = secondsPerQuestion;
+        try {
+            this.results = ResultStore.open(resultsFile);
+            this.leaderboard = results.loadLeaderboard(leaderboardLimit);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Opening results store for " + resultsFile, e);
+        }
+        this.answers = answersFile == null ? null : new AnswerLog(answersFile);
+    }
+
+    String getQuestionsFile() { return questionsFile; }
+
+    boolean isAdaptive() { return adaptive; }
+
+    /** Applies to sessions started from now on. */
+    void setAdaptive(boolean adaptive) { this.adaptive = adaptive; }
+
+    /**
+     * Starts a session for userName with quizLength questions sampled from the
+     * current bank snapshot. The session keeps that snapshot even if the bank is
+     * reloaded meanwhile. Returns a session with no questions if the bank is empty.
+     */
+    QuizSession start(String userName) throws IOException {
+        return start(userName, null, 0);
+    }
+
+    /**
+     * As start(userName), but drawing only from questions that match filter
+     * (null or empty: the whole bank) and asking count of them (0 or less: the
+     * configured quiz length). Filtered quizzes are sampled uniformly, also in
+     * adaptive mode. The session has no questions if nothing matches.
+     */
+    QuizSession start(String userName, QuestionFilter filter, int count) throws IOException {
+        return start(userName, filter, count, null);
+    }
+
+    /**
+     * As start(userName, filter, count), drawing the questions (and, in adaptive
+     * mode, each next pick) from random, so a seeded Random replays the same
+     * quiz. null means ThreadLocalRandom.
+     */
+    QuizSession start(String userName, QuestionFilter filter, int count, Random random) throws IOException {
+        Random rnd = random != null ? random : ThreadLocalRandom.current();
+        SharedQuestionBank shared = SharedQuestionBank.forFile(questionsFile);
+        QuestionBank bank = shared.current();
+        String name = sanitizeName(userName);
+        int length = count > 0 ? count : quizLength;
+        QuizSession s;
+        if (filter != null && !filter.isEmpty()) {
+            QuestionIndex index = shared.indexFor(bank);
+            long t0 = System.nanoTime();
+            int[] order = index.sample(filter, length, new QuestionSampler(rnd));
+            Metrics.FILTERED_SAMPLE.recordSince(t0);
+            s = new QuizSession(nextId.getAndIncrement(), name, bank, order, secondsPerQuestion);
+        } else if (adaptive) {
+            AdaptiveSelector sel = selectorFor(bank);
+            s = new QuizSession(nextId.getAndIncrement(), name, sel.getBank(),
+                    new int[Math.min(length, sel.getBank().size())], secondsPerQuestion, sel, random);
+        } else {
+            int[] order = new QuestionSampler(rnd).sampleIndices(bank.size(), length);
+            s = new QuizSession(nextId.getAndIncrement(), name, bank, order, secondsPerQuestion);
+        }
+        sessions.put(s.getId(), s);
+        Metrics.SESSIONS_STARTED.increment();
+        return s;
+    }
+
+    /**
+     * The selector for bank, built on first use after a reload (carrying ratings
+     * over from the previous snapshot's selector). A start() that raced with the
+     * rebuild may get the newer snapshot's selector; it then uses that bank.
+     */
+    private AdaptiveSelector selectorFor(QuestionBank bank) {
+        AdaptiveSelector sel = selector.get();
+        if (sel != null && sel.getBank() == bank) return sel;
+        synchronized (selector) {
+            sel = selector.get();
+            if (sel == null || sel.getBank() != bank && bank == SharedQuestionBank.forFile(questionsFile).peek()) {
+                sel = new AdaptiveSelector(bank, sel);
+                selector.set(sel);
+            }
+            return sel;
+        }
+    }
+
+    /**
+     * Moves s to its next question and arms its deadline on the shared wheel.
+     * Returns null when the quiz is over.
+     */
+    Question nextQuestion(final QuizSession s, final TimeUpListener listener) {
+        Question q = s.next();
+        if (q == null) return null;
+        final int index = s.getCurrentIndex();
+        long delay = s.getSecondsPerQuestion() * 1000L;
+        TimingWheel.Timeout t = timers.schedule(new Runnable() {
+            @Override public void run() { listener.timeUp(s, index); }
+        }, delay);
+        s.arm(t, timers.currentTimeMillis() + delay);
+        return q;
+    }
+
+    /**
+     * Grades userAnswer (null = no answer) for the current question of s and logs
+     * it. Returns null if that question was already answered or timed out.
+     */
+    QuizSession.AnswerResult answer(QuizSession s, String userAnswer, boolean timedOut) {
+        long t0 = System.nanoTime();
+        int left = timedOut ? 0 : remainingSeconds(s);
+        QuizSession.AnswerResult r = s.answer(userAnswer, timedOut);
+        if (r != null) log(s, r, userAnswer, left);
+        Metrics.ANSWER.recordSince(t0);
+        return r;
+    }
+
+    /**
+     * Answer from a client whose requests may overlap or be retried: grades
+     * userAnswer for question questionIndex of s, or returns the deadline's result
+     * if time ran out first. Returns null if questionIndex is not the current
+     * question or another request already took it; only a caller that got a
+     * result should move s on.
+     */
+    QuizSession.AnswerResult submit(QuizSession s, int questionIndex, String userAnswer) {
+        if (!s.claim(questionIndex)) return null;
+        QuizSession.AnswerResult r = answer(s, userAnswer, false);
+        return r != null ? r : s.getLastResult();
+    }
+
+    /** Time-up path for question questionIndex of s; see QuizSession.timeUp. */
+    QuizSession.AnswerResult timeUp(QuizSession s, int questionIndex) {
+        QuizSession.AnswerResult r = s.timeUp(questionIndex);
+        if (r != null) log(s, r, null, 0);
+        return r;
+    }
+
+    private void log(QuizSession s, QuizSession.AnswerResult r, String userAnswer, int secondsLeft) {
+        (r.timedOut ? Metrics.ANSWERS_TIMED_OUT : r.correct ? Metrics.ANSWERS_CORRECT : Metrics.ANSWERS_WRONG).increment();
+        if (answers != null) {
+            answers.record(clock.millis(), s.getId(), r.question, userAnswer, r.correct, r.timedOut, secondsLeft);
+        }
+    }
+
+    /** Whole seconds left on the current question of s. */
+    int remainingSeconds(QuizSession s) {
+        return s.getRemainingSeconds(timers.currentTimeMillis());
+    }
+
+    /** Runs task on the shared wheel thread after delayMillis (e.g. a feedback pause). */
+    TimingWheel.Timeout schedule(Runnable task, long delayMillis) {
+        return timers.schedule(task, delayMillis);
+    }
+
+    /** The live session with this id, or null. */
+    QuizSession get(long id) {
+        return sessions.get(id);
+    }
+
+    int activeSessions() {
+        return sessions.size();
+    }
+
+    /** Drops a session without recording a result. */
+    void abandon(QuizSession s) {
+        sessions.remove(s.getId());
+    }
+
+    /**
+     * Records the result of a session and removes it. The leaderboard is updated
+     * immediately; the returned future completes when the result line is durable.
+     */
+    CompletableFuture<Void> finish(QuizSession s) {
+        if (sessions.remove(s.getId()) == null) {
+            CompletableFuture<Void> f = new CompletableFuture<Void>();
+            f.completeExceptionally(new IllegalStateException("Session " + s.getId() + " is not active"));
+            return f;
+        }
+        if (s.getSelector() != null) s.getSelector().rememberPlayer(s.getUserName(), s.getRating());
+        String ts = LocalDateTime.now(clock).format(TIMESTAMP);
+        String line = resultLine(s, ts);
+        LeaderboardEntry entry = LeaderboardEntry.parse(line);
+        if (entry != null) leaderboard.offer(entry);
+        Metrics.RESULTS_RECORDED.increment();
+        return results.append(line, entry);
+    }
+
+    /** Current all-time top entries, best first. */
+    List<LeaderboardEntry> leaderboard() {
+        return leaderboard.top();
+    }
+
+    /** Current top entries for today, this week or all time, best first. */
+    List<LeaderboardEntry> leaderboard(Leaderboard.Period period) {
+        return leaderboard.top(period);
+    }
+
+    /** Every tag in the current bank with the number of questions carrying it. */
+    SortedMap<String, Integer> tagCounts() throws IOException {
+        SharedQuestionBank shared = SharedQuestionBank.forFile(questionsFile);
+        return shared.indexFor(shared.current()).tagCounts();
+    }
+
+    /** A player's best recorded result, or null. */
+    LeaderboardEntry bestOf(String userName) {
+        return leaderboard.best(sanitizeName(userName));
+    }
+
+    static String resultLine(QuizSession s, String timestamp) {
+        return s.getUserName() + " - " + s.getScore() + "/" + s.getTotal() + " @ " + timestamp;
+    }
+
+    /** Names end up in a line-oriented log, so line breaks and tabs are flattened. */
+    private static String sanitizeName(String name) {
+        return name.trim().replace('\r', ' ').replace('\n', ' ').replace('\t', ' ');
+    }
+
+    @Override
+    public void close() {
+        timers.close();
+        results.close();
+        if (answers != null) answers.close();
+    }
+}
@@ -0,0 +1,151 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Local load generator for QuizServer. Each client thread plays quizzes back to
+ * back (start, then answer until finished) for the given duration and records
+ * the latency of every /answer call. Prints sustained answers per second and
+ * latency percentiles.
+ *
+ * Usage: java QuizLoadGenerator [baseUrl] [clients] [seconds]
+ *        (defaults: http://localhost:8080 50 30; with baseUrl "embedded" an
+ *         in-process server on a free port is started against questions.txt)
+ */
+class QuizLoadGenerator {
+    /** Per-client latency log (nanoseconds), grown as needed. */
+    private static final class Recorder {
+        long[] samples = new long[1 << 12];
+        int n;
+
+        void add(long nanos) {
+            if (n == samples.length) samples = Arrays.copyOf(samples, n * 2);
+            samples[n++] = nanos;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String base = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        // Keep one pooled connection per client (the JDK keeps only 5 by default)
+        System.setProperty("http.maxConnections", String.valueOf(Math.max(5, clients)));
+
+        QuizServer embedded = null;
+        if ("embedded".equals(base)) {
+            QuizEngine engine = new QuizEngine(QuizSwingApp.QUESTIONS_FILE, "loadtest-results.txt",
+                    "loadtest-answers.log", QuizSwingApp.QUIZ_LENGTH, QuizSwingApp.TIME_PER_QUESTION_SEC, QuizSwingApp.LEADERBOARD_LIMIT);
+            embedded = new QuizServer(engine, 0);
+            embedded.start();
+            base = "http://localhost:" + embedded.getPort();
+        }
+
+        final String url = base;
+        final long endAt = System.nanoTime() + seconds * 1000000000L;
+        final Recorder[] recorders = new Recorder[clients];
+        final AtomicLong quizzes = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(clients);
+        for (int c = 0; c < clients; c++) {
+            final Recorder rec = recorders[c] = new Recorder();
+            final String name = "load-" + c;
+            Thread t = new Thread(new Runnable() {
+                @Override public void run() {
+                    try {
+                        while (System.nanoTime() < endAt) {
+                            try {
+                                playOne(url, name, rec);
+                                quizzes.incrementAndGet();
+                            } catch (IOException e) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "load-client-" + c);
+            t.start();
+        }
+        long started = System.nanoTime();
+        done.await();
+        double elapsed = (System.nanoTime() - started) / 1e9;
+
+        int total = 0;
+        for (Recorder r : recorders) total += r.n;
+        long[] all = new long[total];
+        int k = 0;
+        for (Recorder r : recorders) {
+            System.arraycopy(r.samples, 0, all, k, r.n);
+            k += r.n;
+        }
+        Arrays.sort(all);
+        System.out.printf("clients=%d duration=%.1fs quizzes=%d answers=%d errors=%d%n",
+                clients, elapsed, quizzes.get(), total, errors.get());
+        System.out.printf("throughput: %.0f answers/s%n", total / elapsed);
+        System.out.printf("answer latency: p50=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms%n",
+                pct(all, 0.50), pct(all, 0.99), pct(all, 0.999), total == 0 ? 0 : all[total - 1] / 1e6);
+        if (embedded != null) embedded.stop();
+        System.exit(0);
+    }
+
+    private static void playOne(String base, String name, Recorder rec) throws IOException {
+        String body = post(base + "/start", "name=" + URLEncoder.encode(name, "UTF-8"));
+        String session = field(body, "\"session\":");
+        if (session == null) throw new IOException("start failed: " + body);
+        while (true) {
+            String answer = body.contains("\"type\":\"TF\"") ? "True" : "1";
+            long t0 = System.nanoTime();
+            String index = field(body, "\"index\":");
+            body = post(base + "/answer", "session=" + session + "&question=" + index + "&answer=" + answer);
+            rec.add(System.nanoTime() - t0);
+            if (body.contains("\"finished\":true")) return;
+            if (body.contains("\"error\"")) throw new IOException(body);
+        }
+    }
+
+    private static String post(String url, String form) throws IOException {
+        HttpURLConnection c = (HttpURLConnection) new URL(url).openConnection();
+        c.setRequestMethod("POST");
+        c.setDoOutput(true);
+        c.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        byte[] bytes = form.getBytes(StandardCharsets.UTF_8);
+        c.setFixedLengthStreamingMode(bytes.length);
+        try (OutputStream os = c.getOutputStream()) {
+            os.write(bytes);
+        }
+        int status = c.getResponseCode();
+        InputStream in = status < 400 ? c.getInputStream() : c.getErrorStream();
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(512);
+        try (InputStream is = in) {
+            byte[] chunk = new byte[1024];
+            int n;
+            while ((n = is.read(chunk)) > 0) buf.write(chunk, 0, n);
+        }
+        return new String(buf.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /** Digits following key in a flat JSON object, or null. */
+    private static String field(String json, String key) {
+        int i = json.indexOf(key);
+        if (i < 0) return null;
+        int start = i + key.length(), end = start;
+        while (end < json.length() && Character.isDigit(json.charAt(end))) end++;
+        return end > start ? json.substring(start, end) : null;
+    }
+
+    private static double pct(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int idx = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, idx)] / 1e6;
+    }
+}
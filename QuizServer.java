@@ -0,0 +1,355 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Optional embedded HTTP front-end for the quiz engine, so browsers and thin
+ * clients on a LAN can play without a Swing window per seat. Built on the JDK's
+ * com.sun.net.httpserver; on a JDK with virtual threads each exchange runs on
+ * its own virtual thread, otherwise on a fixed pool.
+ *
+ * Endpoints (parameters in the query string or a form-encoded POST body,
+ * responses in JSON):
+ *   POST /start?name=N[&filter=F][&count=C]
+ *                                       start a session, returns it with its first question;
+ *                                       F is a QuestionFilter spec, C the number of questions
+ *   GET  /question?session=ID           current question and seconds left
+ *   POST /answer?session=ID&question=I&answer=A
+ *                                       grade A (1-4, True/False or text) for question I (the
+ *                                       index the client was shown) and move on; a repeated or
+ *                                       stale I gets 409, so a retried request never skips one
+ *   GET  /leaderboard?period=P          top results; P = daily, weekly or all (default)
+ *   GET  /best?name=N                   a player's best result
+ *   GET  /tags                          every tag in the bank with its question count
+ *   GET  /metrics                       counters and latency percentiles (see Metrics)
+ *
+ * Usage: java QuizServer [port]
+ */
+class QuizServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final long IDLE_TIMEOUT_MS = 60000; // drop a timed-out session nobody comes back to
+    private static final int MAX_COUNT = 500;
+
+    private final QuizEngine engine;
+    private final HttpServer http;
+    private final ExecutorService executor;
+
+    /** Grades on time-up, then forgets the session if the client never returns. */
+    private final QuizEngine.TimeUpListener onTimeUp = new QuizEngine.TimeUpListener() {
+        @Override public void timeUp(final QuizSession s, final int questionIndex) {
+            engine.timeUp(s, questionIndex);
+            engine.schedule(new Runnable() {
+                @Override public void run() {
+                    if (s.getCurrentIndex() == questionIndex) engine.abandon(s);
+                }
+            }, IDLE_TIMEOUT_MS);
+        }
+    };
+
+    QuizServer(QuizEngine engine, int port) throws IOException {
+        this.engine = engine;
+        this.executor = newExecutor();
+        // Responses are small: without TCP_NODELAY, Nagle + delayed ACK add ~40 ms per exchange
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.http = HttpServer.create(new InetSocketAddress(port), 1024);
+        http.setExecutor(executor);
+        http.createContext("/start", new Endpoint() {
+            @Override String handle(Map<String, String> p) throws IOException { return start(p); }
+        });
+        http.createContext("/question", new Endpoint() {
+            @Override String handle(Map<String, String> p) { return question(p); }
+        });
+        http.createContext("/answer", new Endpoint() {
+            @Override String handle(Map<String, String> p) { return answer(p); }
+        });
+        http.createContext("/leaderboard", new Endpoint() {
+            @Override String handle(Map<String, String> p) { return leaderboard(p); }
+        });
+        http.createContext("/best", new Endpoint() {
+            @Override String handle(Map<String, String> p) { return best(p); }
+        });
+        http.createContext("/tags", new Endpoint() {
+            @Override String handle(Map<String, String> p) throws IOException { return tags(); }
+        });
+        http.createContext("/metrics", new Endpoint() {
+            @Override String handle(Map<String, String> p) { return Metrics.toJson(); }
+        });
+    }
+
+    void start() {
+        http.start();
+    }
+
+    int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    void stop() {
+        http.stop(0);
+        executor.shutdownNow();
+    }
+
+    /** A virtual thread per task where the JDK has them (21+), a fixed pool otherwise. */
+    static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException notAvailable) {
+            return Executors.newFixedThreadPool(Math.max(8, Runtime.getRuntime().availableProcessors() * 4));
+        }
+    }
+
+    // ---- endpoints ----
+
+    private String start(Map<String, String> p) throws IOException {
+        String name = p.get("name");
+        if (name == null || name.trim().isEmpty()) throw new BadRequest("name is required");
+        QuestionFilter filter;
+        try {
+            filter = QuestionFilter.parse(p.get("filter"));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequest(e.getMessage());
+        }
+        int count = 0;
+        if (p.get("count") != null) {
+            try {
+                count = Integer.parseInt(p.get("count").trim());
+            } catch (NumberFormatException e) {
+                count = -1;
+            }
+            if (count < 1 || count > MAX_COUNT) throw new BadRequest("count must be 1.." + MAX_COUNT);
+        }
+        QuizSession s = engine.start(name, filter, count);
+        if (s.getTotal() == 0) {
+            engine.abandon(s);
+            throw new BadRequest(filter.isEmpty() ? "No questions found in " + engine.getQuestionsFile()
+                    : "No questions match '" + filter + "'");
+        }
+        engine.nextQuestion(s, onTimeUp);
+        return "{\"session\":" + s.getId() + ",\"total\":" + s.getTotal() + ",\"question\":" + questionJson(s) + "}";
+    }
+
+    private String question(Map<String, String> p) {
+        return questionJson(session(p));
+    }
+
+    private String answer(Map<String, String> p) {
+        QuizSession s = session(p);
+        int index = questionIndex(p);
+        QuizSession.AnswerResult r = engine.submit(s, index - 1, p.get("answer"));
+        if (r == null) {
+            throw new Conflict("Question " + index + " was already answered or is not the current one"
+                    + (s.isFinished() ? " (quiz finished)" : " (current: " + (s.getCurrentIndex() + 1) + ")"));
+        }
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("{\"correct\":").append(r.correct)
+          .append(",\"timedOut\":").append(r.timedOut)
+          .append(",\"correctAnswer\":").append(json(r.correctAnswer))
+          .append(",\"score\":").append(s.getScore());
+        if (engine.nextQuestion(s, onTimeUp) == null) {
+            engine.finish(s);
+            sb.append(",\"finished\":true");
+        } else {
+            sb.append(",\"question\":").append(questionJson(s));
+        }
+        return sb.append('}').toString();
+    }
+
+    private String leaderboard(Map<String, String> p) {
+        long t0 = System.nanoTime();
+        List<LeaderboardEntry> top = engine.leaderboard(period(p.get("period")));
+        StringBuilder sb = new StringBuilder(64 * top.size() + 2).append('[');
+        for (int i = 0; i < top.size(); i++) {
+            if (i > 0) sb.append(',');
+            entryJson(sb.append("{\"rank\":").append(i + 1).append(','), top.get(i));
+        }
+        String out = sb.append(']').toString();
+        Metrics.LEADERBOARD_RENDER.recordSince(t0);
+        return out;
+    }
+
+    private String tags() throws IOException {
+        StringBuilder sb = new StringBuilder(256).append('{');
+        for (Map.Entry<String, Integer> e : engine.tagCounts().entrySet()) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append(json(e.getKey())).append(':').append(e.getValue());
+        }
+        return sb.append('}').toString();
+    }
+
+    private String best(Map<String, String> p) {
+        String name = p.get("name");
+        if (name == null || name.trim().isEmpty()) throw new BadRequest("name is required");
+        LeaderboardEntry e = engine.bestOf(name);
+        return e == null ? "null" : entryJson(new StringBuilder(96).append('{'), e).toString();
+    }
+
+    private static StringBuilder entryJson(StringBuilder sb, LeaderboardEntry e) {
+        return sb.append("\"name\":").append(json(e.name))
+                 .append(",\"score\":").append(e.score)
+                 .append(",\"total\":").append(e.total)
+                 .append(",\"when\":").append(json(e.timestamp)).append('}');
+    }
+
+    private static Leaderboard.Period period(String p) {
+        if (p == null || p.isEmpty() || "all".equalsIgnoreCase(p)) return Leaderboard.Period.ALL_TIME;
+        if ("daily".equalsIgnoreCase(p)) return Leaderboard.Period.DAILY;
+        if ("weekly".equalsIgnoreCase(p)) return Leaderboard.Period.WEEKLY;
+        throw new BadRequest("period must be daily, weekly or all");
+    }
+
+    /** The 1-based question index the client is answering, as sent in questionJson. */
+    private static int questionIndex(Map<String, String> p) {
+        String index = p.get("question");
+        if (index == null) throw new BadRequest("question is required");
+        try {
+            return Integer.parseInt(index.trim());
+        } catch (NumberFormatException e) {
+            throw new BadRequest("question must be a question index");
+        }
+    }
+
+    private QuizSession session(Map<String, String> p) {
+        String id = p.get("session");
+        QuizSession s = null;
+        try {
+            if (id != null) s = engine.get(Long.parseLong(id.trim()));
+        } catch (NumberFormatException ignore) {}
+        if (s == null) throw new BadRequest("Unknown session " + id);
+        return s;
+    }
+
+    private String questionJson(QuizSession s) {
+        Question q = s.current();
+        if (q == null) return "{\"finished\":true,\"score\":" + s.getScore() + "}";
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"index\":").append(s.getCurrentIndex() + 1)
+          .append(",\"total\":").append(s.getTotal())
+          .append(",\"type\":\"").append(q.getType()).append('"')
+          .append(",\"text\":").append(json(q.getQuestionText()))
+          .append(",\"remainingSeconds\":").append(engine.remainingSeconds(s));
+        if (q instanceof MCQQuestion) {
+            sb.append(",\"options\":[");
+            String[] opts = ((MCQQuestion) q).getOptions();
+            for (int i = 0; i < opts.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(json(opts[i]));
+            }
+            sb.append(']');
+        }
+        return sb.append('}').toString();
+    }
+
+    static String json(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    // ---- plumbing ----
+
+    private static final class BadRequest extends RuntimeException {
+        BadRequest(String message) { super(message); }
+    }
+
+    /** A request that no longer matches the session's state, e.g. a repeated answer. */
+    private static final class Conflict extends RuntimeException {
+        Conflict(String message) { super(message); }
+    }
+
+    /** Parses parameters, runs handle() and writes its JSON (or a 400/409/500 error). */
+    private abstract static class Endpoint implements HttpHandler {
+        abstract String handle(Map<String, String> params) throws IOException;
+
+        @Override
+        public void handle(HttpExchange ex) throws IOException {
+            int status = 200;
+            String body;
+            try {
+                body = handle(params(ex));
+            } catch (BadRequest e) {
+                status = 400;
+                body = "{\"error\":" + json(e.getMessage()) + "}";
+            } catch (Conflict e) {
+                status = 409;
+                body = "{\"error\":" + json(e.getMessage()) + "}";
+            } catch (IOException | RuntimeException e) {
+                status = 500;
+                body = "{\"error\":" + json(String.valueOf(e.getMessage())) + "}";
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            ex.sendResponseHeaders(status, bytes.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+
+        private static Map<String, String> params(HttpExchange ex) throws IOException {
+            Map<String, String> out = new HashMap<String, String>();
+            parseForm(ex.getRequestURI().getRawQuery(), out);
+            if ("POST".equalsIgnoreCase(ex.getRequestMethod())) {
+                ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                try (InputStream in = ex.getRequestBody()) {
+                    byte[] chunk = new byte[1024];
+                    int n;
+                    while ((n = in.read(chunk)) > 0) {
+                        if (buf.size() + n > 64 * 1024) throw new BadRequest("Request body too large");
+                        buf.write(chunk, 0, n);
+                    }
+                }
+                parseForm(new String(buf.toByteArray(), StandardCharsets.UTF_8), out);
+            }
+            return out;
+        }
+
+        private static void parseForm(String s, Map<String, String> out) throws UnsupportedEncodingException {
+            if (s == null || s.isEmpty()) return;
+            for (String pair : s.split("&")) {
+                int eq = pair.indexOf('=');
+                String k = eq < 0 ? pair : pair.substring(0, eq);
+                String v = eq < 0 ? "" : pair.substring(eq + 1);
+                out.put(URLDecoder.decode(k, "UTF-8"), URLDecoder.decode(v, "UTF-8"));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        QuizEngine engine = new QuizEngine(QuizSwingApp.QUESTIONS_FILE, QuizSwingApp.RESULTS_FILE,
+                QuizSwingApp.ANSWERS_FILE, QuizSwingApp.QUIZ_LENGTH, QuizSwingApp.TIME_PER_QUESTION_SEC, QuizSwingApp.LEADERBOARD_LIMIT);
+        SharedQuestionBank.forFile(QuizSwingApp.QUESTIONS_FILE).startWatching();
+        Metrics.start();
+        QuizServer server = new QuizServer(engine, port);
+        server.start();
+        System.out.println("Quiz server listening on http://localhost:" + server.getPort() + "/");
+    }
+}
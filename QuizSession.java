@@ -0,0 +1,159 @@
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * State of one player's quiz, independent of any UI: the questions picked for
+ * them, the current position, score and the deadline for the current question.
+ * Questions are kept as indices into the shared QuestionBank snapshot and only
+ * the current one is decoded, so a session costs a few hundred bytes. In
+ * adaptive mode the indices are not drawn up front: an AdaptiveSelector picks
+ * each one from the player's running rating when the session moves on.
+ *
+ * A session is driven by one client at a time, but the engine's TimingWheel
+ * calls in when a deadline passes, so every method is synchronized. Deadlines
+ * are in TimingWheel.currentTimeMillis() time.
+ */
+class QuizSession {
+    /** Outcome of answering (or timing out on) one question. */
+    static final class AnswerResult {
+        final boolean correct;
+        final boolean timedOut;
+        final String correctAnswer;
+        final Question question;
+
+        AnswerResult(Question question, boolean correct, boolean timedOut, String correctAnswer) {
+            this.question = question;
+            this.correct = correct; this.timedOut = timedOut; this.correctAnswer = correctAnswer;
+        }
+    }
+
+    private final long id;
+    private final String userName;
+    private final QuestionBank bank;
+    private final int[] order;
+    private final int secondsPerQuestion;
+    private final AdaptiveSelector selector; // null unless adaptive
+    private final Random random;             // for adaptive picks; null = ThreadLocalRandom
+
+    private int currentIndex = -1;
+    private int score = 0;
+    private Question current;
+    private boolean answered;
+    private boolean claimed;      // a client request has taken the current question (see claim)
+    private AnswerResult lastResult;
+    private TimingWheel.Timeout deadline;
+    private long deadlineAt = -1; // -1 while no deadline is armed for the current question
+    private double rating;        // player's running rating (adaptive mode)
+
+    QuizSession(long id, String userName, QuestionBank bank, int[] order, int secondsPerQuestion) {
+        this(id, userName, bank, order, secondsPerQuestion, null, null);
+    }
+
+    /**
+     * Adaptive session: order only fixes the quiz length and is filled in by
+     * selector (whose bank must be bank) one question at a time, using random
+     * (null: ThreadLocalRandom).
+     */
+    QuizSession(long id, String userName, QuestionBank bank, int[] order, int secondsPerQuestion,
+                AdaptiveSelector selector, Random random) {
+        this.id = id;
+        this.userName = userName;
+        this.bank = bank;
+        this.order = order;
+        this.secondsPerQuestion = secondsPerQuestion;
+        this.selector = selector;
+        this.random = random;
+        this.rating = selector == null ? 0 : selector.playerRating(userName);
+    }
+
+    long getId() { return id; }
+    String getUserName() { return userName; }
+    int getTotal() { return order.length; }
+    int getSecondsPerQuestion() { return secondsPerQuestion; }
+
+    synchronized int getCurrentIndex() { return currentIndex; }
+    synchronized int getScore() { return score; }
+    synchronized boolean isFinished() { return currentIndex >= order.length; }
+    synchronized boolean isAnswered() { return answered; }
+    synchronized double getRating() { return rating; }
+    AdaptiveSelector getSelector() { return selector; }
+
+    /** Result of the most recently answered (or timed-out) question, or null. */
+    synchronized AnswerResult getLastResult() { return lastResult; }
+
+    /** The question being asked, or null before the first next() and after the last. */
+    synchronized Question current() { return current; }
+
+    /** Moves to the next question; returns null when the quiz is over. See QuizEngine.nextQuestion. */
+    synchronized Question next() {
+        if (currentIndex < order.length) currentIndex++;
+        answered = false;
+        claimed = false;
+        disarm();
+        deadlineAt = -1;
+        if (selector != null && currentIndex < order.length) {
+            order[currentIndex] = selector.pick(rating, order, currentIndex,
+                    random != null ? random : ThreadLocalRandom.current());
+        }
+        current = currentIndex < order.length ? bank.get(order[currentIndex]) : null;
+        return current;
+    }
+
+    /** Attaches the deadline timeout for the current question (ending at deadlineAt). */
+    synchronized void arm(TimingWheel.Timeout timeout, long deadlineAt) {
+        disarm();
+        this.deadline = timeout;
+        this.deadlineAt = deadlineAt;
+    }
+
+    /** Whole seconds left for the current question at time now (rounded up, never negative). */
+    synchronized int getRemainingSeconds(long now) {
+        if (current == null) return 0;
+        if (deadlineAt < 0) return secondsPerQuestion;
+        long left = deadlineAt - now;
+        return left <= 0 ? 0 : (int) ((left + 999) / 1000);
+    }
+
+    /**
+     * Grades the answer to the current question (null = no answer). Returns null
+     * if there is no current question or it has already been answered.
+     */
+    synchronized AnswerResult answer(String userAnswer, boolean timedOut) {
+        if (current == null || answered) return null;
+        answered = true;
+        disarm();
+        boolean correct = (userAnswer != null) && current.isCorrect(userAnswer);
+        if (correct) score++;
+        if (selector != null) rating = selector.update(order[currentIndex], rating, correct);
+        lastResult = new AnswerResult(current, correct, timedOut, current.getCorrectAnswerAsString());
+        return lastResult;
+    }
+
+    /**
+     * Lets exactly one client request act on question questionIndex: true for the
+     * first call while it is the current question, false for repeats and stale
+     * indices. The caller then grades it (or takes the deadline's result) and is
+     * the one that moves the session on.
+     */
+    synchronized boolean claim(int questionIndex) {
+        if (questionIndex != currentIndex || current == null || claimed) return false;
+        claimed = true;
+        return true;
+    }
+
+    /**
+     * Time-up path for question questionIndex: the same as answer(null, true), but
+     * ignored if the player has since answered or moved on.
+     */
+    synchronized AnswerResult timeUp(int questionIndex) {
+        if (questionIndex != currentIndex) return null;
+        return answer(null, true);
+    }
+
+    private void disarm() {
+        if (deadline != null) {
+            deadline.cancel();
+            deadline = null;
+        }
+    }
+}
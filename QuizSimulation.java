@@ -0,0 +1,433 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/*
+ * Headless, deterministic load simulation of the quiz engine. Thousands of
+ * players take quizzes against the real QuizEngine - sampling, grading, the
+ * answer log, the leaderboard and the result store - but question deadlines
+ * and thinking time run on a manual TimingWheel. Virtual time jumps ahead one
+ * step (STEP_MILLIS) as soon as the work due in the current step is done, so a
+ * 10-second question costs no real time at all.
+ *
+ * Each step the driver advances the wheel, collects the players whose next
+ * action (start, answer or time-up) fell due, and runs them on the worker
+ * threads. Every player draws its arrival time, questions, answers and
+ * thinking times from its own Random, seeded from the run seed and its number,
+ * and never has two actions due in one step. What each player is asked and
+ * scores therefore does not depend on thread scheduling: a seed gives the same
+ * replay digest with any number of threads. (In adaptive mode players share
+ * question ratings, so the digest only repeats with one thread.)
+ *
+ * Players are random - skill and speed drawn per player - unless a script file
+ * describes them, one player per line (players reuse lines cyclically):
+ *
+ *   <name> <action> <action> ...   R<ms> right answer after ms, W<ms> wrong
+ *                                  answer after ms, T let the time run out;
+ *                                  repeated for the length of the quiz
+ *
+ * An answer planned for less than two steps before the deadline could land in
+ * the same step as the time-up, so it is played as T instead.
+ *
+ * Reports wall-clock throughput and per-call latency of the engine.
+ *
+ * Usage: java QuizSimulation [players] [threads] [seed] [options]
+ *        (defaults: 10000, available processors, 42)
+ *   --questions FILE  question bank (default questions.txt)
+ *   --script FILE     scripted players instead of random ones
+ *   --ramp SECONDS    spread arrivals over this much virtual time (default 0: all at once)
+ *   --length N        questions per quiz (default as in the app)
+ *   --seconds N       seconds per question (default as in the app)
+ *   --filter SPEC     QuestionFilter applied to every quiz
+ *   --dir DIR         results and answer log directory (default: a temp directory, removed after)
+ */
+class QuizSimulation {
+    static final long STEP_MILLIS = 100;
+    private static final long TICK_MILLIS = 10;
+    private static final int WHEEL_SIZE = 512;
+
+    private final QuizEngine engine;
+    private final TimingWheel wheel;
+    private final ExecutorService workers;
+    private final int threads;
+    private final long seed;
+    private final long answerLimitMillis; // an answer planned later than this would race the deadline
+    private final QuestionFilter filter;
+    private final int length;
+    private final List<Player> due = new ArrayList<Player>(); // driver thread only
+
+    private final Metrics.Histogram startLatency = new Metrics.Histogram("start");
+    private final Metrics.Histogram nextLatency = new Metrics.Histogram("nextQuestion");
+    private final Metrics.Histogram answerLatency = new Metrics.Histogram("answer");
+    private final Metrics.Histogram finishLatency = new Metrics.Histogram("finish");
+    private final Metrics.Histogram durableLatency = new Metrics.Histogram("resultDurable");
+
+    private final AtomicInteger unfinished = new AtomicInteger();
+    private final AtomicInteger empty = new AtomicInteger();
+    private final AtomicLong answers = new AtomicLong();
+    private final AtomicLong correct = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong digest = new AtomicLong();
+    private final List<CompletableFuture<Void>> writes = new ArrayList<CompletableFuture<Void>>();
+
+    private enum Action { START, ANSWER, TIME_UP }
+
+    QuizSimulation(QuizEngine engine, TimingWheel wheel, int threads, long seed, int secondsPerQuestion,
+                   QuestionFilter filter, int length) {
+        this.engine = engine;
+        this.wheel = wheel;
+        this.threads = threads;
+        this.seed = seed;
+        this.answerLimitMillis = secondsPerQuestion * 1000L - 2 * STEP_MILLIS;
+        this.filter = filter;
+        this.length = length;
+        this.workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger n = new AtomicInteger();
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "sim-worker-" + n.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    // ---- players ----
+
+    /** How one player answers: right or not, and after how long (or not at all). */
+    abstract static class Behaviour {
+        /** Thinking time in ms for question number i, or -1 to let the time run out. */
+        abstract long thinkMillis(int i, Random r);
+        abstract boolean answersRight(int i, Random r);
+    }
+
+    /** Skill (chance of a right answer) and mean thinking time drawn once per player. */
+    static final class RandomBehaviour extends Behaviour {
+        private final double skill;
+        private final long meanThink;
+
+        RandomBehaviour(Random r) {
+            this.skill = 0.35 + 0.6 * r.nextDouble();
+            this.meanThink = 2000 + r.nextInt(6000);
+        }
+
+        @Override long thinkMillis(int i, Random r) {
+            return (long) (meanThink * (0.25 + 1.5 * r.nextDouble()));
+        }
+
+        @Override boolean answersRight(int i, Random r) {
+            return r.nextDouble() < skill;
+        }
+    }
+
+    /** A line of a script file: the actions are replayed cyclically. */
+    static final class ScriptedBehaviour extends Behaviour {
+        private final long[] think;   // -1 = time out
+        private final boolean[] right;
+
+        ScriptedBehaviour(String[] actions) {
+            if (actions.length == 0) throw new IllegalArgumentException("A scripted player needs at least one action");
+            think = new long[actions.length];
+            right = new boolean[actions.length];
+            for (int i = 0; i < actions.length; i++) {
+                String a = actions[i].toUpperCase(Locale.ROOT);
+                if (a.equals("T")) {
+                    think[i] = -1;
+                } else if ((a.startsWith("R") || a.startsWith("W")) && a.length() > 1) {
+                    right[i] = a.charAt(0) == 'R';
+                    think[i] = Long.parseLong(a.substring(1));
+                } else {
+                    throw new IllegalArgumentException("Bad script action '" + actions[i] + "' (use R<ms>, W<ms> or T)");
+                }
+            }
+        }
+
+        @Override long thinkMillis(int i, Random r) { return think[i % think.length]; }
+        @Override boolean answersRight(int i, Random r) { return right[i % right.length]; }
+    }
+
+    /** One simulated player; only the thread running its current action touches its fields. */
+    final class Player {
+        final int number;
+        final String name;
+        final Random random;
+        final Behaviour behaviour;
+        Action action = Action.START;
+        QuizSession session;
+        private String plannedAnswer;
+        private long hash;
+
+        Player(int number, String name, Random random, Behaviour behaviour) {
+            this.number = number;
+            this.name = name;
+            this.random = random;
+            this.behaviour = behaviour;
+            this.hash = number;
+        }
+
+        // Both run on the driver thread, inside advanceTo
+        private final Runnable wake = new Runnable() {
+            @Override public void run() { due.add(Player.this); }
+        };
+        private final QuizEngine.TimeUpListener timeUp = new QuizEngine.TimeUpListener() {
+            @Override public void timeUp(QuizSession s, int questionIndex) {
+                action = Action.TIME_UP;
+                due.add(Player.this);
+            }
+        };
+
+        void act() throws IOException {
+            switch (action) {
+                case START:
+                    long t0 = System.nanoTime();
+                    session = engine.start(name, filter, length, random);
+                    startLatency.recordSince(t0);
+                    if (session.getTotal() == 0) {
+                        engine.abandon(session);
+                        empty.incrementAndGet();
+                        unfinished.decrementAndGet();
+                        return;
+                    }
+                    break;
+                case ANSWER:
+                    t0 = System.nanoTime();
+                    QuizSession.AnswerResult r = engine.answer(session, plannedAnswer, false);
+                    answerLatency.recordSince(t0);
+                    record(r);
+                    break;
+                case TIME_UP:
+                    record(engine.timeUp(session, session.getCurrentIndex()));
+                    break;
+            }
+            long t0 = System.nanoTime();
+            Question q = engine.nextQuestion(session, timeUp);
+            nextLatency.recordSince(t0);
+            if (q == null) {
+                finish();
+                return;
+            }
+            int i = session.getCurrentIndex();
+            long think = behaviour.thinkMillis(i, random);
+            boolean right = behaviour.answersRight(i, random);
+            if (think < 0 || think > answerLimitMillis) return; // the deadline will wake us
+            plannedAnswer = answerFor(q, right);
+            action = Action.ANSWER;
+            wheel.schedule(wake, think);
+        }
+
+        private void record(QuizSession.AnswerResult r) {
+            if (r == null) return;
+            answers.incrementAndGet();
+            if (r.correct) correct.incrementAndGet();
+            if (r.timedOut) timedOut.incrementAndGet();
+            hash = mix(mix(hash, r.question.getId()), (r.correct ? 1 : 0) | (r.timedOut ? 2 : 0));
+        }
+
+        private void finish() {
+            final long t0 = System.nanoTime();
+            CompletableFuture<Void> w = engine.finish(session);
+            finishLatency.recordSince(t0);
+            w.whenComplete(new BiConsumer<Void, Throwable>() {
+                @Override public void accept(Void v, Throwable err) {
+                    durableLatency.recordSince(t0);
+                }
+            });
+            synchronized (writes) {
+                writes.add(w);
+            }
+            digest.addAndGet(mix(hash, session.getScore() * 1000L + session.getTotal()));
+            unfinished.decrementAndGet();
+        }
+    }
+
+    /** An answer the question grades as right, or one it grades as wrong. */
+    static String answerFor(Question q, boolean right) {
+        if (q instanceof MCQQuestion) {
+            int c = ((MCQQuestion) q).getCorrectIndex();
+            return String.valueOf(right ? c : c % 4 + 1);
+        }
+        if (q instanceof TrueFalseQuestion) {
+            return ((TrueFalseQuestion) q).getCorrect() == right ? "True" : "False";
+        }
+        return right ? q.getCorrectAnswerAsString() : "?";
+    }
+
+    private static long mix(long h, long v) {
+        h ^= v;
+        h *= 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    // ---- driving ----
+
+    /** Adds a player arriving at virtual time arrivalMillis. */
+    void add(Player p, long arrivalMillis) {
+        unfinished.incrementAndGet();
+        wheel.schedule(p.wake, arrivalMillis);
+    }
+
+    /** Player number, random unless script (its actions) is given. */
+    Player player(int number, String name, String[] script) {
+        Random r = new Random(mix(seed, number));
+        return new Player(number, name, r, script == null ? new RandomBehaviour(r) : new ScriptedBehaviour(script));
+    }
+
+    /** Runs steps until every player has finished; returns the number of steps. */
+    long run() throws Exception {
+        long steps = 0;
+        while (unfinished.get() > 0) {
+            wheel.advanceTo(wheel.currentTimeMillis() + STEP_MILLIS);
+            steps++;
+            if (due.isEmpty()) continue;
+            runBatch();
+            due.clear();
+        }
+        CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).join();
+        return steps;
+    }
+
+    /** Runs the due players' actions, split evenly over the workers. */
+    private void runBatch() throws Exception {
+        int chunks = Math.min(threads, due.size());
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            final List<Player> part = due.subList(c * due.size() / chunks, (c + 1) * due.size() / chunks);
+            tasks.add(new Callable<Void>() {
+                @Override public Void call() throws IOException {
+                    for (Player p : part) p.act();
+                    return null;
+                }
+            });
+        }
+        for (Future<Void> f : workers.invokeAll(tasks)) f.get();
+    }
+
+    /** A clock reading base plus the wheel's virtual time, for result timestamps. */
+    static Clock virtualClock(final Instant base, final TimingWheel wheel, final ZoneId zone) {
+        return new Clock() {
+            @Override public ZoneId getZone() { return zone; }
+            @Override public Clock withZone(ZoneId z) { return virtualClock(base, wheel, z); }
+            @Override public Instant instant() { return base.plusMillis(wheel.currentTimeMillis()); }
+        };
+    }
+
+    // ---- command line ----
+
+    public static void main(String[] args) throws Exception {
+        List<String> positional = new ArrayList<String>();
+        String questions = QuizSwingApp.QUESTIONS_FILE, script = null, filterSpec = null, dirArg = null;
+        int ramp = 0, length = QuizSwingApp.QUIZ_LENGTH, seconds = QuizSwingApp.TIME_PER_QUESTION_SEC;
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (!a.startsWith("--")) { positional.add(a); continue; }
+            if (i + 1 == args.length) throw new IllegalArgumentException(a + " needs a value");
+            String v = args[++i];
+            switch (a) {
+                case "--questions": questions = v; break;
+                case "--script": script = v; break;
+                case "--ramp": ramp = Integer.parseInt(v); break;
+                case "--length": length = Integer.parseInt(v); break;
+                case "--seconds": seconds = Integer.parseInt(v); break;
+                case "--filter": filterSpec = v; break;
+                case "--dir": dirArg = v; break;
+                default: throw new IllegalArgumentException("Unknown option " + a);
+            }
+        }
+        int players = positional.size() > 0 ? Integer.parseInt(positional.get(0)) : 10000;
+        int threads = positional.size() > 1 ? Integer.parseInt(positional.get(1)) : Runtime.getRuntime().availableProcessors();
+        long seed = positional.size() > 2 ? Long.parseLong(positional.get(2)) : 42;
+
+        List<String[]> lines = new ArrayList<String[]>();
+        if (script != null) {
+            for (String line : Files.readAllLines(Paths.get(script), StandardCharsets.UTF_8)) {
+                String t = line.trim();
+                if (!t.isEmpty() && !t.startsWith("#")) lines.add(t.split("\\s+"));
+            }
+            if (lines.isEmpty()) throw new IllegalArgumentException("No players in " + script);
+        }
+
+        Path dir = dirArg != null ? Files.createDirectories(Paths.get(dirArg)) : Files.createTempDirectory("quiz-sim");
+        TimingWheel wheel = TimingWheel.manual(TICK_MILLIS, WHEEL_SIZE);
+        ZoneId zone = ZoneId.systemDefault();
+        Clock clock = virtualClock(LocalDate.now(zone).atStartOfDay(zone).toInstant(), wheel, zone);
+        QuizEngine engine = new QuizEngine(questions, dir.resolve("results.txt").toString(),
+                dir.resolve("answers.log").toString(), length, seconds, QuizSwingApp.LEADERBOARD_LIMIT, wheel, clock);
+        QuizSimulation sim = new QuizSimulation(engine, wheel, threads, seed, seconds,
+                QuestionFilter.parse(filterSpec), length);
+        try {
+            SharedQuestionBank.forFile(questions).current(); // load outside the measurement
+            for (int i = 0; i < players; i++) {
+                Player p;
+                if (lines.isEmpty()) {
+                    p = sim.player(i, "sim-" + i, null);
+                } else {
+                    String[] line = lines.get(i % lines.size());
+                    String name = i < lines.size() ? line[0] : line[0] + "#" + (i / lines.size());
+                    p = sim.player(i, name, Arrays.copyOfRange(line, 1, line.length));
+                }
+                sim.add(p, ramp > 0 ? p.random.nextInt(ramp * 1000) : 0);
+            }
+            long t0 = System.nanoTime();
+            long steps = sim.run();
+            double wall = (System.nanoTime() - t0) / 1e9;
+            sim.report(players, seed, lines.isEmpty() ? "random" : "scripted", length, seconds, steps, wall);
+        } finally {
+            sim.workers.shutdownNow();
+            engine.close();
+            if (dirArg == null) deleteTree(dir);
+        }
+    }
+
+    private void report(int players, long seed, String kind, int length, int seconds, long steps, double wall) {
+        long virtualMillis = wheel.currentTimeMillis();
+        long n = answers.get();
+        System.out.printf("players=%d (%s) threads=%d seed=%d quiz=%d questions x %ds%s%n", players, kind, threads,
+                seed, length, seconds, filter.isEmpty() ? "" : " filter='" + filter + "'");
+        System.out.printf("virtual time: %.1f min in %d steps, simulated in %.2f s (%.0fx real time)%n",
+                virtualMillis / 60000.0, steps, wall, virtualMillis / 1000.0 / wall);
+        System.out.printf("quizzes: %d finished, %d with no questions; answers: %d (%.1f%% right, %.1f%% timed out)%n",
+                players - empty.get(), empty.get(), n, n == 0 ? 0 : 100.0 * correct.get() / n,
+                n == 0 ? 0 : 100.0 * timedOut.get() / n);
+        System.out.printf("throughput: %.0f answers/s, %.0f quizzes/s%n", n / wall, (players - empty.get()) / wall);
+        System.out.printf("%-14s %10s %10s %10s %10s %10s %10s %10s%n",
+                "latency (us)", "count", "mean", "p50", "p90", "p99", "p99.9", "max");
+        for (Metrics.Histogram h : new Metrics.Histogram[] { startLatency, nextLatency, answerLatency, finishLatency, durableLatency }) {
+            Metrics.Snapshot s = h.snapshot();
+            System.out.printf("%-14s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", h.name, s.count,
+                    s.meanNanos() / 1000, s.valueAt(0.50) / 1000.0, s.valueAt(0.90) / 1000.0,
+                    s.valueAt(0.99) / 1000.0, s.valueAt(0.999) / 1000.0, s.maxNanos / 1000.0);
+        }
+        List<LeaderboardEntry> top = engine.leaderboard();
+        if (!top.isEmpty()) System.out.println("top result: " + top.get(0).name + " " + top.get(0).score + "/" + top.get(0).total);
+        System.out.printf("replay digest: %016x%n", digest.get());
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            Iterator<Path> it = paths.sorted(Comparator.<Path>reverseOrder()).iterator(); // children first
+            while (it.hasNext()) Files.deleteIfExists(it.next());
+        }
+    }
+}
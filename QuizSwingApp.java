@@ -19,13 +19,20 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /*
  * Quiz Swing Application
  * Compatible with: Java 8, Windows 7 (32-bit)
  * Features:
  *  - OOP question types (MCQ / True-False / Fill-in-the-Blank)
- *  - File handling: loads questions.txt, appends to results.txt
+ *  - Files are read and written off the Swing thread; loading shows progress
+ *  - File handling: loads questions.txt, records results in results.d/ (see ResultStore)
  *  - Timer per question (default 10 seconds)
  *  - Shuffle questions
  *  - User profiles (enter your name)
@@ -48,13 +55,20 @@ import java.util.*;
  *   FIB
  *   <question with or without blanks>
  *   <answer text>
+ *
+ * Any block may be preceded by "TAGS: java, inheritance" and/or
+ * "CATEGORY: Programming" lines; both are stored as tags of that question
+ * and can be used to filter quizzes (see QuestionFilter).
  */
 
 enum QuestionType { MCQ, TF, FIB }
 
 abstract class Question {
+    static final String[] NO_TAGS = new String[0];
+
     protected String questionText;
     protected QuestionType type;
+    protected String[] tags = NO_TAGS;
 
     public Question(String questionText, QuestionType type) {
         this.questionText = questionText;
@@ -64,36 +78,137 @@ abstract class Question {
     public String getQuestionText() { return questionText; }
     public QuestionType getType() { return type; }
 
+    /** Tags and categories from the question file, normalized (see QuestionFilter.normalizeTag). */
+    public String[] getTags() { return tags; }
+
+    /** Sets the tags; for loaders. Returns this. */
+    Question withTags(String[] tags) {
+        this.tags = tags == null || tags.length == 0 ? NO_TAGS : tags;
+        return this;
+    }
+
+    /**
+     * Stable id: a 64-bit FNV-1a hash of the type and question text, plus the
+     * options of an MCQ. It does not cover the answer or correct index, so logged
+     * answers still line up after a key is fixed.
+     */
+    public long getId() {
+        return textId();
+    }
+
+    /** Hash of the type and question text only; the id of every question in older answer logs. */
+    long textId() {
+        long h = 0xcbf29ce484222325L;
+        h = (h ^ type.ordinal()) * 0x100000001b3L;
+        return fnv(h, getQuestionText()); // flyweights decode their text on demand
+    }
+
+    static long fnv(long h, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
     /** Returns true if userAnswer is correct (string interpretation per type). */
-    public abstract boolean isCorrect(String userAnswer);
+    public boolean isCorrect(String userAnswer) {
+        return grade(userAnswer);
+    }
+
+    /**
+     * Same result as isCorrect(userAnswer.toString()), but never allocates or throws,
+     * so logged answers can be bulk-graded straight out of a buffer.
+     */
+    public abstract boolean grade(CharSequence userAnswer);
 
     /** String representation of the correct answer (for feedback). */
     public abstract String getCorrectAnswerAsString();
+
+    // Allocation-free helpers with String.trim() / equalsIgnoreCase() semantics
+
+    static int trimStart(CharSequence s, int from, int to) {
+        while (from < to && s.charAt(from) <= ' ') from++;
+        return from;
+    }
+
+    static int trimEnd(CharSequence s, int from, int to) {
+        while (to > from && s.charAt(to - 1) <= ' ') to--;
+        return to;
+    }
+
+    static boolean equalsIgnoreCase(String key, CharSequence s, int from, int to) {
+        int n = key.length();
+        if (to - from != n) return false;
+        for (int i = 0; i < n; i++) {
+            char a = key.charAt(i), b = s.charAt(from + i);
+            if (a == b) continue;
+            char ua = Character.toUpperCase(a), ub = Character.toUpperCase(b);
+            if (ua == ub) continue;
+            if (Character.toLowerCase(ua) != Character.toLowerCase(ub)) return false;
+        }
+        return true;
+    }
 }
 
 class MCQQuestion extends Question {
     private String[] options; // length 4
     private int correctIndex; // 1-based index
+    private String correctOption; // normalized once: null if correctIndex is out of range
 
     public MCQQuestion(String questionText, String[] options, int correctIndex) {
         super(questionText, QuestionType.MCQ);
         this.options = options;
         this.correctIndex = correctIndex;
+        this.correctOption = correctIndex >= 1 && correctIndex <= options.length ? options[correctIndex - 1] : null;
     }
 
     public String[] getOptions() { return options; }
+    public int getCorrectIndex() { return correctIndex; }
 
+    /** Two MCQs with the same stem but different options are different questions. */
     @Override
-    public boolean isCorrect(String userAnswer) {
+    public long getId() {
+        long h = textId();
+        for (String opt : getOptions()) h = fnv((h ^ 0x1F) * 0x100000001b3L, opt); // 0x1F separates options
+        return h;
+    }
+
+    /** Pre-tokenized answer: the chosen option number (1-4). */
+    public boolean gradeOption(int option) {
+        return option == correctIndex;
+    }
+
+    @Override
+    public boolean grade(CharSequence userAnswer) {
         if (userAnswer == null) return false;
-        userAnswer = userAnswer.trim();
+        int from = trimStart(userAnswer, 0, userAnswer.length());
+        int to = trimEnd(userAnswer, from, userAnswer.length());
         // Accept either the option number (1-4) or exact text match (case-insensitive)
-        try {
-            int idx = Integer.parseInt(userAnswer);
-            return idx == correctIndex;
-        } catch (NumberFormatException ignore) {
-            return options[correctIndex - 1].equalsIgnoreCase(userAnswer);
+        long idx = parseInt(userAnswer, from, to);
+        if (idx != NOT_A_NUMBER) return idx == correctIndex;
+        return correctOption != null && equalsIgnoreCase(correctOption, userAnswer, from, to);
+    }
+
+    private static final long NOT_A_NUMBER = Long.MIN_VALUE;
+
+    /** Integer.parseInt over s[from, to) without throwing; NOT_A_NUMBER where it would throw. */
+    private static long parseInt(CharSequence s, int from, int to) {
+        if (from >= to) return NOT_A_NUMBER;
+        boolean negative = false;
+        char first = s.charAt(from);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++from == to) return NOT_A_NUMBER;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int d = Character.digit(s.charAt(i), 10);
+            if (d < 0) return NOT_A_NUMBER;
+            value = value * 10 + d;
+            if (value > (long) Integer.MAX_VALUE + 1) return NOT_A_NUMBER;
         }
+        if (!negative && value > Integer.MAX_VALUE) return NOT_A_NUMBER;
+        return negative ? -value : value;
     }
 
     @Override
@@ -110,11 +225,20 @@ class TrueFalseQuestion extends Question {
         this.correct = correct;
     }
 
+    public boolean getCorrect() { return correct; }
+
+    /** Pre-tokenized answer: true for "True", false for "False". */
+    public boolean grade(boolean answer) {
+        return answer == correct;
+    }
+
     @Override
-    public boolean isCorrect(String userAnswer) {
+    public boolean grade(CharSequence userAnswer) {
         if (userAnswer == null) return false;
-        return ("true".equalsIgnoreCase(userAnswer) || "t".equalsIgnoreCase(userAnswer)) == correct
-            || ("false".equalsIgnoreCase(userAnswer) || "f".equalsIgnoreCase(userAnswer)) == !correct;
+        int n = userAnswer.length();
+        boolean saysTrue = equalsIgnoreCase("true", userAnswer, 0, n) || equalsIgnoreCase("t", userAnswer, 0, n);
+        boolean saysFalse = equalsIgnoreCase("false", userAnswer, 0, n) || equalsIgnoreCase("f", userAnswer, 0, n);
+        return saysTrue == correct || saysFalse == !correct;
     }
 
     @Override
@@ -125,61 +249,66 @@ class TrueFalseQuestion extends Question {
 
 class FillBlankQuestion extends Question {
     private String answer;
+    private final AnswerMatcher matcher;
 
     public FillBlankQuestion(String questionText, String answer) {
+        this(questionText, answer, AnswerMatcher.Options.DEFAULT);
+    }
+
+    /** answer may list synonyms separated by '|' if options allow them; see AnswerMatcher. */
+    public FillBlankQuestion(String questionText, String answer, AnswerMatcher.Options options) {
         super(questionText, QuestionType.FIB);
         this.answer = answer == null ? "" : answer.trim();
+        this.matcher = new AnswerMatcher(this.answer, options);
     }
 
+    /** The answer line as written, synonyms included. */
+    public String getAnswer() { return answer; }
+
     @Override
-    public boolean isCorrect(String userAnswer) {
-        if (userAnswer == null) return false;
-        return answer.equalsIgnoreCase(userAnswer.trim());
+    public boolean grade(CharSequence userAnswer) {
+        return matcher.matches(userAnswer);
     }
 
     @Override
     public String getCorrectAnswerAsString() {
-        return answer;
+        return matcher.primary();
     }
 }
 
 class QuestionLoader {
+    /** Reports malformed blocks on stderr as "file:line: message". */
+    static QuestionReader.ErrorListener stderrListener(final String path) {
+        return new QuestionReader.ErrorListener() {
+            @Override public void malformedBlock(int line, String message) {
+                System.err.println(path + ":" + line + ": " + message);
+            }
+        };
+    }
+
     public static java.util.List<Question> loadFromFile(String path) throws IOException {
-        java.util.List<Question> list = new java.util.ArrayList<Question>();
-        java.util.List<String> lines = java.nio.file.Files.readAllLines(
-            java.nio.file.Paths.get(path),
-            java.nio.charset.StandardCharsets.UTF_8
-             );
-        for (int i = 0; i < lines.size();) {
-            String typeLine = lines.get(i).trim();
-            if (typeLine.isEmpty()) { i++; continue; }
-            if ("MCQ".equalsIgnoreCase(typeLine)) {
-                if (i + 6 >= lines.size()) break; // not enough lines
-                String q = lines.get(++i);
-                String[] opts = new String[4];
-                for (int k = 0; k < 4; k++) opts[k] = lines.get(++i);
-                int correct = Integer.parseInt(lines.get(++i).trim());
-                list.add(new MCQQuestion(q, opts, correct));
-                i++;
-            } else if ("TF".equalsIgnoreCase(typeLine)) {
-                if (i + 2 >= lines.size()) break;
-                String q = lines.get(++i);
-                String tf = lines.get(++i).trim();
-                boolean correct = tf.equalsIgnoreCase("true");
-                list.add(new TrueFalseQuestion(q, correct));
-                i++;
-            } else if ("FIB".equalsIgnoreCase(typeLine)) {
-                if (i + 2 >= lines.size()) break;
-                String q = lines.get(++i);
-                String ans = lines.get(++i);
-                list.add(new FillBlankQuestion(q, ans));
-                i++;
-            } else {
-                // Unknown line, skip
-                i++;
+        final java.util.List<Question> list = new java.util.ArrayList<Question>();
+        stream(path, new java.util.function.Consumer<Question>() {
+            @Override public void accept(Question q) { list.add(q); }
+        }, stderrListener(path));
+        return list;
+    }
+
+    /**
+     * Streams every well-formed question in the file to the consumer, one block at a time,
+     * without holding the file or the parsed bank in memory. Returns the number delivered.
+     */
+    public static int stream(String path, java.util.function.Consumer<? super Question> consumer,
+                             QuestionReader.ErrorListener errors) throws IOException {
+        int count = 0;
+        try (QuestionReader reader = QuestionReader.open(path, errors)) {
+            Question q;
+            while ((q = reader.next()) != null) {
+                consumer.accept(q);
+                count++;
             }
         }
-        return list;
+        return count;
     }
 }
 
@@ -188,43 +317,115 @@ class LeaderboardEntry {
     int score;
     int total;
     String timestamp;
+    long minute; // timestamp as minutes since the epoch, or -1 if it is not "yyyy-MM-dd HH:mm"
 
     LeaderboardEntry(String name, int score, int total, String timestamp) {
         this.name = name; this.score = score; this.total = total; this.timestamp = timestamp;
+        this.minute = epochMinute(timestamp);
+    }
+
+    /** Day of the result (days since the epoch), or -1 if it has no valid timestamp. */
+    long epochDay() {
+        return minute < 0 ? -1 : minute / (24 * 60);
+    }
+
+    /** Minutes since 1970-01-01 00:00 for "yyyy-MM-dd HH:mm..." (no allocation), or -1. */
+    static long epochMinute(String ts) {
+        if (ts == null || ts.length() < 16 || ts.charAt(4) != '-' || ts.charAt(7) != '-'
+                || ts.charAt(10) != ' ' || ts.charAt(13) != ':') {
+            return -1;
+        }
+        int y = digits(ts, 0, 4), m = digits(ts, 5, 7), d = digits(ts, 8, 10);
+        int hh = digits(ts, 11, 13), mm = digits(ts, 14, 16);
+        if (y < 1970 || m < 1 || m > 12 || d < 1 || d > daysInMonth(y, m) || hh > 23 || mm > 59 || hh < 0 || mm < 0) {
+            return -1;
+        }
+        // days from civil (proleptic Gregorian), with March as the first month of the year
+        int yy = m <= 2 ? y - 1 : y;
+        int era = yy / 400;
+        int yoe = yy - era * 400;
+        int doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        long days = era * 146097L + doe - 719468;
+        return days * 24 * 60 + hh * 60 + mm;
+    }
+
+    private static int daysInMonth(int y, int m) {
+        if (m == 2) return (y % 4 == 0 && (y % 100 != 0 || y % 400 == 0)) ? 29 : 28;
+        return (m == 4 || m == 6 || m == 9 || m == 11) ? 30 : 31;
+    }
+
+    private static int digits(String s, int from, int to) {
+        int v = 0;
+        for (int i = from; i < to; i++) {
+            int c = s.charAt(i) - '0';
+            if (c < 0 || c > 9) return -1;
+            v = v * 10 + c;
+        }
+        return v;
     }
 
     static LeaderboardEntry parse(String line) {
         // Format: name - score/total @ yyyy-MM-dd HH:mm
+        // Same fields as splitting on " - ", " @ " and "/", located with indexOf instead of split().
         try {
-            String[] parts = line.split(" - ");
-            String name = parts[0].trim();
-            String[] rest = parts[1].split(" @ ");
-            String scorePart = rest[0].trim();
-            String ts = rest.length > 1 ? rest[1].trim() : "";
-            String[] st = scorePart.split("/");
-            int score = Integer.parseInt(st[0].trim());
-            int total = Integer.parseInt(st[1].trim());
-            return new LeaderboardEntry(name, score, total, ts);
-        } catch (Exception e) {
+            int nameEnd = segmentEnd(line, 0, line.length(), " - ");
+            if (nameEnd == line.length()) return null;
+            int restStart = nameEnd + 3;
+            int restEnd = segmentEnd(line, restStart, line.length(), " - ");
+            int scoreEnd = segmentEnd(line, restStart, restEnd, " @ ");
+            String ts = "";
+            if (scoreEnd < restEnd) {
+                int tsStart = scoreEnd + 3;
+                ts = line.substring(tsStart, segmentEnd(line, tsStart, restEnd, " @ ")).trim();
+            }
+            int slash = segmentEnd(line, restStart, scoreEnd, "/");
+            if (slash == scoreEnd) return null;
+            int totalEnd = segmentEnd(line, slash + 1, scoreEnd, "/");
+            int score = Integer.parseInt(line.substring(restStart, slash).trim());
+            int total = Integer.parseInt(line.substring(slash + 1, totalEnd).trim());
+            return new LeaderboardEntry(line.substring(0, nameEnd).trim(), score, total, ts);
+        } catch (NumberFormatException e) {
             return null;
         }
     }
+
+    /** End of the sep-delimited segment starting at from, looking no further than limit. */
+    private static int segmentEnd(String s, int from, int limit, String sep) {
+        int i = s.indexOf(sep, from);
+        return i < 0 || i + sep.length() > limit ? limit : i;
+    }
 }
 
 public class QuizSwingApp extends JFrame {
     // Config
-    private static final String QUESTIONS_FILE = "questions.txt";
-    private static final String RESULTS_FILE = "results.txt";
-    private static final int TIME_PER_QUESTION_SEC = 10; // adjust if needed
-    private static final int LEADERBOARD_LIMIT = 10;
-
-    // State
-    private String userName;
-    private java.util.List<Question> questions = new ArrayList<Question>();
-    private int currentIndex = -1;
-    private int score = 0;
-    private int remainingSeconds = TIME_PER_QUESTION_SEC;
-    private javax.swing.Timer swingTimer;
+    static final String QUESTIONS_FILE = System.getProperty("quiz.questions", "questions.txt"); // or a directory of questions*.txt
+    static final String RESULTS_FILE = "results.txt";
+    static final String ANSWERS_FILE = "answers.log"; // per-answer events for AnswerAnalytics
+    static final int TIME_PER_QUESTION_SEC = 10; // adjust if needed
+    static final int LEADERBOARD_LIMIT = 10;
+    static final int QUIZ_LENGTH = 10; // questions per quiz
+    private static final long FEEDBACK_PAUSE_MS = 900;
+
+    /** Runs continuations of background work on the EDT. */
+    private static final Executor ON_EDT = new Executor() {
+        @Override public void execute(Runnable r) { EventQueue.invokeLater(r); }
+    };
+
+    // State (quiz logic lives in QuizEngine / QuizSession; this frame is one client)
+    private QuizEngine engine;        // set on the EDT once opened in the background
+    private boolean bankLoaded;       // the first load of the question bank has finished (or failed)
+    private boolean engineFailed;     // opening the engine failed; Start retries it
+    private QuizSession session;
+    private CompletableFuture<?> pending; // UI update waiting for background work; cancelled on restart
+    private final QuizEngine.TimeUpListener timeUpOnEdt;
+    private final ExecutorService io = Executors.newFixedThreadPool(2, new ThreadFactory() {
+        @Override public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "quiz-io");
+            t.setDaemon(true);
+            return t;
+        }
+    });
 
     // UI Components
     private CardLayout cardLayout = new CardLayout();
@@ -232,16 +433,15 @@ public class QuizSwingApp extends JFrame {
 
     // Start Panel
     private JTextField nameField = new JTextField();
+    private JTextField filterField = new JTextField(); // optional QuestionFilter spec
+    private JSpinner countSpinner = new JSpinner(new SpinnerNumberModel(QUIZ_LENGTH, 1, 100, 1));
     private JLabel startError = new JLabel(" ");
+    private JButton startBtn = new JButton("Start Quiz");
+    private JProgressBar loadProgress = new JProgressBar(0, 100);
 
     // Quiz Panel
     private JLabel questionLabel = new JLabel();
-    private JPanel answerPanel = new JPanel();
-    private ButtonGroup mcqGroup = new ButtonGroup();
-    private JRadioButton[] mcqButtons = new JRadioButton[4];
-    private JRadioButton tfTrue = new JRadioButton("True");
-    private JRadioButton tfFalse = new JRadioButton("False");
-    private JTextField fibField = new JTextField();
+    private AnswerCards answerCards = new AnswerCards(); // one pre-built card per question type
     private JLabel timerLabel = new JLabel("Time: " + TIME_PER_QUESTION_SEC + "s");
     private JLabel feedbackLabel = new JLabel(" ");
     private JButton nextButton = new JButton("Submit & Next →");
@@ -262,17 +462,105 @@ public class QuizSwingApp extends JFrame {
         root.add(buildResultPanel(), "result");
         add(root, BorderLayout.CENTER);
 
-        // Timer setup (ticks every second)
-        swingTimer = new javax.swing.Timer(1000, new ActionListener() {
-            @Override public void actionPerformed(ActionEvent e) {
-                remainingSeconds--;
-                timerLabel.setText("Time: " + remainingSeconds + "s");
-                if (remainingSeconds <= 0) {
-                    swingTimer.stop();
-                    handleAnswer(null, true); // time up
+        // Question deadlines fire on the engine's timing wheel; hop to the EDT
+        timeUpOnEdt = new QuizEngine.TimeUpListener() {
+            @Override public void timeUp(final QuizSession s, final int questionIndex) {
+                EventQueue.invokeLater(new Runnable() {
+                    @Override public void run() {
+                        if (s == session && s.getCurrentIndex() == questionIndex) {
+                            handleAnswer(null, true); // time up
+                        }
+                    }
+                });
+            }
+        };
+        startLoading();
+    }
+
+    /**
+     * Opens the engine (results store and leaderboards) and loads the question
+     * bank on background threads, side by side, showing load progress. Start is
+     * enabled once both have finished, whether or not they succeeded.
+     */
+    private void startLoading() {
+        startBtn.setEnabled(false);
+        loadProgress.setStringPainted(true);
+        loadProgress.setString("Loading questions...");
+        openEngine(false);
+
+        final QuestionReader.ProgressListener progress = new QuestionReader.ProgressListener() {
+            private int shown = -1; // loader thread only
+            @Override public void progress(long bytesRead, long totalBytes) {
+                final int pct = totalBytes <= 0 ? 100 : (int) Math.min(100, bytesRead * 100 / totalBytes);
+                if (pct == shown) return; // at most ~100 updates, whatever the file size
+                shown = pct;
+                EventQueue.invokeLater(new Runnable() {
+                    @Override public void run() {
+                        loadProgress.setValue(pct);
+                        loadProgress.setString("Loading questions... " + pct + "%");
+                    }
+                });
+            }
+        };
+        CompletableFuture.supplyAsync(new java.util.function.Supplier<QuestionBank>() {
+            @Override public QuestionBank get() {
+                try {
+                    return SharedQuestionBank.forFile(QUESTIONS_FILE).current(progress);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
                 }
             }
-        });
+        }, io).whenCompleteAsync(new java.util.function.BiConsumer<QuestionBank, Throwable>() {
+            @Override public void accept(QuestionBank bank, Throwable err) {
+                bankLoaded = true;
+                loadProgress.setValue(100);
+                if (err != null) {
+                    loadProgress.setString("Failed to read " + QUESTIONS_FILE);
+                    startError.setText(rootCause(err).getMessage());
+                } else {
+                    loadProgress.setString(bank.size() + " questions loaded");
+                    // Index tags and words now, so the first filtered quiz starts at once
+                    io.execute(new Runnable() {
+                        @Override public void run() {
+                            SharedQuestionBank.forFile(QUESTIONS_FILE).indexFor(bank);
+                        }
+                    });
+                }
+                onLoaded();
+            }
+        }, ON_EDT);
+    }
+
+    /** Opens the engine in the background; if startAfter, starts the quiz once it is open. */
+    private void openEngine(final boolean startAfter) {
+        CompletableFuture.supplyAsync(new java.util.function.Supplier<QuizEngine>() {
+            @Override public QuizEngine get() {
+                return new QuizEngine(QUESTIONS_FILE, RESULTS_FILE, ANSWERS_FILE, QUIZ_LENGTH,
+                        TIME_PER_QUESTION_SEC, LEADERBOARD_LIMIT);
+            }
+        }, io).whenCompleteAsync(new java.util.function.BiConsumer<QuizEngine, Throwable>() {
+            @Override public void accept(QuizEngine e, Throwable err) {
+                engineFailed = err != null;
+                if (err != null) {
+                    startError.setText("Could not open " + RESULTS_FILE + ": " + rootCause(err).getMessage()
+                            + " (Start tries again)");
+                } else {
+                    engine = e;
+                }
+                onLoaded();
+                if (err == null && startAfter) onStartClicked();
+            }
+        }, ON_EDT);
+    }
+
+    private void onLoaded() {
+        // After a failed load Start is still offered: starting retries what failed
+        startBtn.setEnabled(bankLoaded && (engine != null || engineFailed));
+    }
+
+    private static Throwable rootCause(Throwable t) {
+        while (t instanceof CompletionException && t.getCause() != null) t = t.getCause();
+        return t;
     }
 
     private JPanel buildStartPanel() {
@@ -294,14 +582,28 @@ public class QuizSwingApp extends JFrame {
         nameField.setColumns(20);
         center.add(nameField, gc);
 
-        gc.gridx = 0; gc.gridy = 1; gc.gridwidth = 2; gc.weightx = 0;
-        JButton startBtn = new JButton("Start Quiz");
+        gc.gridx = 0; gc.gridy = 1; gc.weightx = 0;
+        center.add(new JLabel("Topics (optional):"), gc);
+        gc.gridx = 1; gc.weightx = 1.0;
+        filterField.setToolTipText("Tags, types and words, e.g.  tag:java tag:inheritance type:mcq");
+        center.add(filterField, gc);
+
+        gc.gridx = 0; gc.gridy = 2; gc.weightx = 0;
+        center.add(new JLabel("Questions:"), gc);
+        gc.gridx = 1; gc.fill = GridBagConstraints.NONE; gc.anchor = GridBagConstraints.WEST;
+        center.add(countSpinner, gc);
+        gc.fill = GridBagConstraints.HORIZONTAL;
+
+        gc.gridx = 0; gc.gridy = 3; gc.gridwidth = 2;
         center.add(startBtn, gc);
 
-        gc.gridy = 2;
+        gc.gridy = 4;
         startError.setForeground(Color.RED);
         center.add(startError, gc);
 
+        gc.gridy = 5;
+        center.add(loadProgress, gc);
+
         p.add(center, BorderLayout.CENTER);
 
         startBtn.addActionListener(new ActionListener() {
@@ -329,8 +631,7 @@ public class QuizSwingApp extends JFrame {
 
         p.add(top, BorderLayout.NORTH);
 
-        answerPanel.setLayout(new GridLayout(6, 1, 6, 6));
-        p.add(answerPanel, BorderLayout.CENTER);
+        p.add(answerCards, BorderLayout.CENTER);
 
         JPanel bottom = new JPanel(new BorderLayout());
         feedbackLabel.setForeground(new Color(0xAA0000));
@@ -338,12 +639,6 @@ public class QuizSwingApp extends JFrame {
         bottom.add(nextButton, BorderLayout.EAST);
         p.add(bottom, BorderLayout.SOUTH);
 
-        // Prepare MCQ radio buttons once
-        for (int i = 0; i < 4; i++) {
-            mcqButtons[i] = new JRadioButton();
-            mcqButtons[i].setActionCommand(String.valueOf(i + 1));
-        }
-
         nextButton.addActionListener(new ActionListener() {
             @Override public void actionPerformed(ActionEvent e) {
                 String answer = collectCurrentAnswer();
@@ -400,160 +695,183 @@ public class QuizSwingApp extends JFrame {
             startError.setText("Please enter your name.");
             return;
         }
-        this.userName = name;
-        // Load questions
+        final QuestionFilter filter;
         try {
-            questions = QuestionLoader.loadFromFile(QUESTIONS_FILE);
-          if (questions.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "No questions found in " + QUESTIONS_FILE,
-        "Error", JOptionPane.ERROR_MESSAGE);
-
-    return;
-}
-// Shuffle all questions
-Collections.shuffle(questions, new Random());
-
-// Pick only 10 (or less if file has fewer)
-if (questions.size() > 10) {
-    questions = new ArrayList<>(questions.subList(0, 10));
-}
-        } catch (IOException ex) {
-            JOptionPane.showMessageDialog(this,
-                    "Failed to read " + QUESTIONS_FILE + "\n" + ex.getMessage(),
-                    "Read Error", JOptionPane.ERROR_MESSAGE);
+            filter = QuestionFilter.parse(filterField.getText());
+        } catch (IllegalArgumentException e) {
+            startError.setText(e.getMessage());
+            return;
+        }
+        final int count = (Integer) countSpinner.getValue();
+        startError.setText(" ");
+        startBtn.setEnabled(false);
+        if (engine == null) { // opening the results store failed: retry it, then start
+            engineFailed = false;
+            openEngine(true);
             return;
         }
-        cardLayout.show(root, "quiz");
-        nextQuestion();
+        // Pick the questions from the shared bank (loading it again if the first load failed)
+        final QuizEngine eng = engine;
+        pending = CompletableFuture.supplyAsync(new java.util.function.Supplier<QuizSession>() {
+            @Override public QuizSession get() {
+                try {
+                    return eng.start(name, filter, count);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }
+        }, io).whenCompleteAsync(new java.util.function.BiConsumer<QuizSession, Throwable>() {
+            @Override public void accept(QuizSession s, Throwable err) {
+                startBtn.setEnabled(true);
+                if (err != null) {
+                    JOptionPane.showMessageDialog(QuizSwingApp.this,
+                            "Failed to read " + QUESTIONS_FILE + "\n" + rootCause(err).getMessage(),
+                            "Read Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                if (s.getTotal() == 0) {
+                    eng.abandon(s);
+                    JOptionPane.showMessageDialog(QuizSwingApp.this, filter.isEmpty()
+                            ? "No questions found in " + QUESTIONS_FILE : "No questions match \"" + filter + "\"",
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                session = s;
+                cardLayout.show(root, "quiz");
+                nextQuestion();
+            }
+        }, ON_EDT);
     }
 
     private void nextQuestion() {
-        currentIndex++;
+        Question q = engine.nextQuestion(session, timeUpOnEdt);
         feedbackLabel.setText(" ");
-        if (currentIndex >= questions.size()) {
+        if (q == null) {
             endQuiz();
             return;
         }
-        Question q = questions.get(currentIndex);
         renderQuestion(q);
-        remainingSeconds = TIME_PER_QUESTION_SEC;
-        timerLabel.setText("Time: " + remainingSeconds + "s");
-        swingTimer.restart();
+        timerLabel.setText("Time: " + engine.remainingSeconds(session) + "s");
+        scheduleCountdown(session, session.getCurrentIndex());
     }
 
-    private void renderQuestion(Question q) {
-        // Clear panel
-        answerPanel.removeAll();
-        mcqGroup = new ButtonGroup();
-
-        questionLabel.setText("<html><body style='width:600px'>Q" + (currentIndex + 1) + "/" + questions.size() + ": "
-                + escapeHtml(q.getQuestionText()) + "</body></html>");
-
-        if (q.getType() == QuestionType.MCQ) {
-            MCQQuestion m = (MCQQuestion) q;
-            String[] opts = m.getOptions();
-            for (int i = 0; i < 4; i++) {
-                mcqButtons[i].setText((i + 1) + ". " + opts[i]);
-                mcqButtons[i].setSelected(false);
-                mcqGroup.add(mcqButtons[i]);
-                answerPanel.add(mcqButtons[i]);
+    /** Refreshes the countdown label once a second while question questionIndex is open. */
+    private void scheduleCountdown(final QuizSession s, final int questionIndex) {
+        engine.schedule(new Runnable() {
+            @Override public void run() {
+                EventQueue.invokeLater(new Runnable() {
+                    @Override public void run() {
+                        if (s != session || s.getCurrentIndex() != questionIndex || s.isAnswered()) return;
+                        timerLabel.setText("Time: " + engine.remainingSeconds(s) + "s");
+                        scheduleCountdown(s, questionIndex);
+                    }
+                });
             }
-        } else if (q.getType() == QuestionType.TF) {
-            tfTrue.setSelected(false);
-            tfFalse.setSelected(false);
-            ButtonGroup tfGroup = new ButtonGroup();
-            tfGroup.add(tfTrue);
-            tfGroup.add(tfFalse);
-            answerPanel.add(tfTrue);
-            answerPanel.add(tfFalse);
-        } else { // FIB
-            fibField.setText("");
-            answerPanel.add(new JLabel("Type your answer:"));
-            answerPanel.add(fibField);
-        }
+        }, 1000);
+    }
 
-        answerPanel.revalidate();
-        answerPanel.repaint();
+    private void renderQuestion(Question q) {
+        long t0 = System.nanoTime();
+        questionLabel.setText("<html><body style='width:600px'>Q" + (session.getCurrentIndex() + 1) + "/" + session.getTotal() + ": "
+                + escapeHtml(q.getQuestionText()) + "</body></html>");
+        answerCards.show(q);
+        Metrics.RENDER_QUESTION.recordSince(t0);
     }
 
     private String collectCurrentAnswer() {
-        Question q = questions.get(currentIndex);
-        if (q.getType() == QuestionType.MCQ) {
-            ButtonModel sel = mcqGroup.getSelection();
-            return sel == null ? null : sel.getActionCommand(); // "1".."4"
-        } else if (q.getType() == QuestionType.TF) {
-            if (tfTrue.isSelected()) return "True";
-            if (tfFalse.isSelected()) return "False";
-            return null;
-        } else {
-            String t = fibField.getText();
-            return t == null || t.trim().isEmpty() ? null : t.trim();
-        }
+        return answerCards.selectedAnswer(session.current().getType());
     }
 
     private void handleAnswer(String userAnswer, boolean timedOut) {
-        swingTimer.stop();
-        Question q = questions.get(currentIndex);
-        boolean correct = (userAnswer != null) && q.isCorrect(userAnswer);
-        if (correct) {
-            score++;
+        QuizSession.AnswerResult result = engine.answer(session, userAnswer, timedOut);
+        if (result == null) return; // already answered, waiting for the next question
+        if (result.correct) {
             feedbackLabel.setForeground(new Color(0x006400));
             feedbackLabel.setText("Correct!");
         } else {
             String why = timedOut ? "Time up! " : "Wrong! ";
             feedbackLabel.setForeground(new Color(0xAA0000));
-            feedbackLabel.setText(why + "Correct answer: " + q.getCorrectAnswerAsString());
+            feedbackLabel.setText(why + "Correct answer: " + result.correctAnswer);
         }
 
         // Brief delay to let the user read feedback, then go next
-        javax.swing.Timer pause = new javax.swing.Timer(900, new ActionListener() {
-            public void actionPerformed(ActionEvent e) {
-                ((javax.swing.Timer) e.getSource()).stop();
-                nextQuestion();
+        final QuizSession s = session;
+        engine.schedule(new Runnable() {
+            @Override public void run() {
+                EventQueue.invokeLater(new Runnable() {
+                    @Override public void run() {
+                        if (s == session) nextQuestion();
+                    }
+                });
             }
-        });
-        pause.setRepeats(false);
-        pause.start();
-        
+        }, FEEDBACK_PAUSE_MS);
     }
 
-    private void endQuiz() {
-        // Save result
-        String ts = new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date());
-        String line = userName + " - " + score + "/" + questions.size() + " @ " + ts;
-        try (FileWriter fw = new FileWriter(RESULTS_FILE, true)) {
-            fw.write(line + System.lineSeparator());
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Failed to write results: " + e.getMessage(),
-                    "Write Error", JOptionPane.ERROR_MESSAGE);
+    /** Text for the result card, built off the EDT. */
+    private static final class ResultView {
+        final String score;
+        final String board;
+        final long startedNanos;
+        ResultView(String score, String board, long startedNanos) {
+            this.score = score;
+            this.board = board;
+            this.startedNanos = startedNanos;
         }
+    }
 
-        finalScoreLabel.setText("Hi " + userName + ", your score: " + score + "/" + questions.size());
-        renderLeaderboard();
+    /**
+     * Shows the result card at once, then records the result and builds the
+     * leaderboard text on a background thread while the result is written out,
+     * and publishes the text on the EDT (unless the player restarted meanwhile).
+     */
+    private void endQuiz() {
+        final QuizSession finished = session;
+        final QuizEngine eng = engine;
+        finalScoreLabel.setText("Hi " + finished.getUserName() + ", your score: " + finished.getScore()
+                + "/" + finished.getTotal());
+        leaderboardArea.setText("Loading leaderboard...");
         cardLayout.show(root, "result");
-    }
 
-    private void renderLeaderboard() {
-        java.util.List<LeaderboardEntry> entries = new ArrayList<LeaderboardEntry>();
-        if (new File(RESULTS_FILE).exists()) {
-            try (BufferedReader br = new BufferedReader(new FileReader(RESULTS_FILE))) {
-                String ln;
-                while ((ln = br.readLine()) != null) {
-                    LeaderboardEntry e = LeaderboardEntry.parse(ln);
-                    if (e != null) entries.add(e);
-                }
-            } catch (IOException ignore) {}
-        }
-        // Sort by score desc, then timestamp (recent first)
-        Collections.sort(entries, new Comparator<LeaderboardEntry>() {
-            @Override public int compare(LeaderboardEntry a, LeaderboardEntry b) {
-                int cmp = Integer.compare(b.score, a.score);
-                if (cmp != 0) return cmp;
-                return b.timestamp.compareTo(a.timestamp);
+        pending = CompletableFuture.supplyAsync(new java.util.function.Supplier<ResultView>() {
+            @Override public ResultView get() {
+                long t0 = System.nanoTime();
+                // Save result (written by the results journal's thread while the board is built here)
+                eng.finish(finished).whenComplete(new java.util.function.BiConsumer<Void, Throwable>() {
+                    @Override public void accept(Void ok, final Throwable err) {
+                        if (err == null) return;
+                        EventQueue.invokeLater(new Runnable() {
+                            @Override public void run() {
+                                JOptionPane.showMessageDialog(QuizSwingApp.this, "Failed to write results: " + err.getMessage(),
+                                        "Write Error", JOptionPane.ERROR_MESSAGE);
+                            }
+                        });
+                    }
+                });
+                LeaderboardEntry best = eng.bestOf(finished.getUserName());
+                String score = "Hi " + finished.getUserName() + ", your score: " + finished.getScore()
+                        + "/" + finished.getTotal() + (best == null ? "" : "  (your best: " + best.score + "/" + best.total + ")");
+                return new ResultView(score, leaderboardText(eng), t0);
             }
-        });
+        }, io).thenAcceptAsync(new java.util.function.Consumer<ResultView>() {
+            @Override public void accept(ResultView v) {
+                finalScoreLabel.setText(v.score);
+                leaderboardArea.setText(v.board);
+                leaderboardArea.setCaretPosition(0);
+                Metrics.LEADERBOARD_RENDER.recordSince(v.startedNanos);
+            }
+        }, ON_EDT);
+    }
 
+    private static String leaderboardText(QuizEngine engine) {
         StringBuilder sb = new StringBuilder();
+        appendBoard(sb, "All time", engine.leaderboard());
+        sb.append('\n');
+        appendBoard(sb, "Today", engine.leaderboard(Leaderboard.Period.DAILY));
+        return sb.toString();
+    }
+
+    private static void appendBoard(StringBuilder sb, String title, java.util.List<LeaderboardEntry> entries) {
+        sb.append(title).append('\n');
         sb.append(String.format("%-4s %-20s %-10s %-16s\n", "#", "Name", "Score", "When"));
         sb.append("----------------------------------------------\n");
         int limit = Math.min(LEADERBOARD_LIMIT, entries.size());
@@ -562,14 +880,15 @@ if (questions.size() > 10) {
             sb.append(String.format("%-4d %-20s %-10s %-16s\n", i + 1, e.name,
                     (e.score + "/" + e.total), e.timestamp));
         }
-        leaderboardArea.setText(sb.toString());
     }
 
     private void resetAndGoToStart() {
-        userName = null;
-        questions.clear();
-        currentIndex = -1;
-        score = 0;
+        // Drop a result card that is still being prepared; the result is recorded either way
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+        session = null;
         nameField.setText("");
         cardLayout.show(root, "start");
     }
@@ -582,6 +901,12 @@ if (questions.size() > 10) {
     public static void main(String[] args) {
         // Ensure a native look on Windows 7
         try { UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName()); } catch (Exception ignore) {}
+        // Latency metrics over JMX (and quiz.metrics.file), plus EDT stall detection
+        Metrics.start();
+        Metrics.installEdtMonitor();
+        // Reload the question bank in the background whenever questions.txt changes
+        try { SharedQuestionBank.forFile(QUESTIONS_FILE).startWatching(); } catch (IOException ignore) {}
+        // The window opens at once; questions and results are loaded in the background
         EventQueue.invokeLater(new Runnable() {
             @Override public void run() {
                 new QuizSwingApp().setVisible(true);
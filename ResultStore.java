@@ -0,0 +1,611 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Results store split into time-partitioned segments, in a directory next to
+ * the results file (results.txt -> results.d/):
+ *
+ *   2026-10-17.log   one day of result lines, in Journal format; the current
+ *                    day's segment is the one being appended to
+ *   2026-09.log      a month, produced by compacting old day segments
+ *   undated.log      migrated lines without a usable timestamp
+ *   *.sum            summary sidecar of a sealed segment: record count, max
+ *                    score, first/last day, and the lines that are in its top
+ *                    SUMMARY_TOP or are some player's best (tagged T / B / TB)
+ *
+ * Building the leaderboards reads only the summaries plus today's segment, and
+ * top(from, to, k) reads summaries of segments inside the window and scans just
+ * the segments it cuts through. A maintenance thread seals segments (repairs a
+ * torn tail, writes the summary) and merges day segments older than
+ * COMPACT_AFTER_DAYS into month segments. A merge is staged in temp files and
+ * recorded in an intent file before anything is replaced, so a crash at any
+ * point is rolled back or forward on the next open.
+ *
+ * An existing plain results.txt is migrated once, byte for byte, into the
+ * segments of its lines' dates (the file itself is left untouched).
+ */
+class ResultStore implements Closeable {
+    static final int SUMMARY_TOP = 100;
+    static final int COMPACT_AFTER_DAYS = 7;
+
+    private static final String LOG = ".log";
+    private static final String SUMMARY = ".sum";
+    private static final String TMP = ".tmp";
+    private static final String UNDATED = "undated";
+    private static final String MIGRATED = "MIGRATED";
+    private static final String INTENT = "compact.intent";
+    private static final String SUMMARY_MAGIC = "QSUM 2"; // 2: top lines ranked by score/total
+
+    /** Contents of a .sum file. */
+    static final class Summary {
+        long bytes;              // size of the log it describes; stale if the log changed
+        long count;
+        int maxScore = -1;
+        long firstDay = -1, lastDay = -1;
+        final List<String> top = new ArrayList<String>();  // lines tagged T or TB, log order
+        final List<String> lines = new ArrayList<String>(); // all tagged lines, log order
+        final List<String> tags = new ArrayList<String>();  // T, B or TB for each of lines
+    }
+
+    /** Log order position of a line, so ties keep the order they were written in. */
+    private static final class Line {
+        final String text;
+        final LeaderboardEntry entry;
+        final long seq;
+        boolean top, best;
+        Line(String text, LeaderboardEntry entry, long seq) { this.text = text; this.entry = entry; this.seq = seq; }
+    }
+
+    private static final Comparator<Line> WORST_FIRST = new Comparator<Line>() {
+        @Override public int compare(Line a, Line b) {
+            int cmp = Leaderboard.RANKING.compare(b.entry, a.entry);
+            return cmp != 0 ? cmp : Long.compare(b.seq, a.seq);
+        }
+    };
+
+    private static final Comparator<String> CHRONOLOGICAL = new Comparator<String>() {
+        @Override public int compare(String a, String b) {
+            // undated (legacy) first, then by name: "2026-09" sorts before "2026-09-01"
+            if (a.equals(b)) return 0;
+            if (UNDATED.equals(a)) return -1;
+            if (UNDATED.equals(b)) return 1;
+            return a.compareTo(b);
+        }
+    };
+
+    private final Path dir;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock(); // write-held only while swapping files
+    private final TreeMap<String, Summary> sealed = new TreeMap<String, Summary>(CHRONOLOGICAL);
+    private final ExecutorService maintenance;
+    private volatile Thread maintenanceThread;
+    private Journal active;         // guarded by this
+    private volatile String activeName; // written under this
+    private long activeDay = -1;    // guarded by this
+
+    private ResultStore(Path dir) {
+        this.dir = dir;
+        this.maintenance = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "results-maintenance");
+                t.setDaemon(true);
+                maintenanceThread = t;
+                return t;
+            }
+        });
+    }
+
+    /** Segment directory for a results file: results.txt -> results.d */
+    static Path directoryFor(String resultsFile) {
+        Path p = Paths.get(resultsFile).toAbsolutePath();
+        String name = p.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return p.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".d");
+    }
+
+    /**
+     * Opens (creating or migrating if needed) the store for resultsFile, finishes
+     * or rolls back an interrupted compaction, and seals segments of past days.
+     * Compaction then continues in the background.
+     */
+    static ResultStore open(String resultsFile) throws IOException {
+        Path dir = directoryFor(resultsFile);
+        if (!Files.exists(dir.resolve(MIGRATED))) migrate(Paths.get(resultsFile), dir);
+        ResultStore store = new ResultStore(dir);
+        store.recoverCompaction();
+        String today = LocalDate.now().toString();
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(dir, "*" + LOG)) {
+            for (Path log : logs) {
+                String name = segmentName(log);
+                if (!name.equals(today)) store.sealed.put(name, store.seal(name));
+            }
+        }
+        store.scheduleCompaction();
+        return store;
+    }
+
+    /** Appends a result line to the segment of its day; the future completes when it is durable. */
+    synchronized CompletableFuture<Void> append(String line, LeaderboardEntry e) {
+        long day = e == null ? -1 : e.epochDay();
+        if (day < 0) day = LocalDate.now().toEpochDay();
+        if (active == null || day > activeDay) rotate(day);
+        return active.append(line); // a late result for an earlier day joins the current segment
+    }
+
+    private void rotate(long day) {
+        if (active != null) {
+            active.close();
+            final String done = activeName;
+            maintenance.execute(new Runnable() {
+                @Override public void run() {
+                    try {
+                        Summary s = seal(done);
+                        lock.writeLock().lock();
+                        try { sealed.put(done, s); } finally { lock.writeLock().unlock(); }
+                        compactOldDays(); // already on the maintenance thread; compact() would wait on itself
+                    } catch (IOException e) {
+                        System.err.println("Could not seal results segment " + done + ": " + e.getMessage());
+                    }
+                }
+            });
+        }
+        activeDay = day;
+        activeName = LocalDate.ofEpochDay(day).toString();
+        lock.writeLock().lock();
+        try {
+            sealed.remove(activeName); // appended to again (restart on the same day)
+        } finally {
+            lock.writeLock().unlock();
+        }
+        active = new Journal(dir.resolve(activeName + LOG).toString(), Journal.Durability.SYNC_EACH_BATCH, 0,
+                Metrics.RESULT_WRITE);
+    }
+
+    // ---- reading ----
+
+    /**
+     * Builds the live leaderboards (all-time, today, this week, personal bests)
+     * from the summaries and the unsealed segments only.
+     */
+    Leaderboard loadLeaderboard(int capacity) throws IOException {
+        Leaderboard board = new Leaderboard(capacity);
+        lock.readLock().lock();
+        try {
+            for (String name : segmentNames()) {
+                Summary s = sealed.get(name);
+                if (s != null && capacity <= SUMMARY_TOP) {
+                    for (String line : s.lines) offerLine(board, line);
+                } else {
+                    scan(name, board, Long.MIN_VALUE, Long.MAX_VALUE);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return board;
+    }
+
+    /** Top k results with a date in [from, to], best first. */
+    List<LeaderboardEntry> top(LocalDate from, LocalDate to, int k) throws IOException {
+        long first = from.toEpochDay(), last = to.toEpochDay();
+        Leaderboard board = new Leaderboard(k);
+        lock.readLock().lock();
+        try {
+            for (String name : segmentNames()) {
+                if (UNDATED.equals(name)) continue;
+                Summary s = sealed.get(name);
+                if (s != null) {
+                    if (s.count == 0 || s.lastDay < first || s.firstDay > last) continue;
+                    if (s.firstDay >= first && s.lastDay <= last && k <= SUMMARY_TOP) {
+                        for (String line : s.top) offerLine(board, line);
+                        continue;
+                    }
+                }
+                scan(name, board, first, last);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return board.top();
+    }
+
+    /** Number of sealed segments; for tests and tools. */
+    int sealedSegments() {
+        lock.readLock().lock();
+        try { return sealed.size(); } finally { lock.readLock().unlock(); }
+    }
+
+    /** All segment names, oldest first (caller holds the read lock). */
+    private List<String> segmentNames() throws IOException {
+        List<String> names = new ArrayList<String>(sealed.keySet());
+        String current = activeName;
+        if (current != null && !names.contains(current)) names.add(current);
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(dir, "*" + LOG)) {
+            for (Path log : logs) {
+                String name = segmentName(log);
+                if (!names.contains(name)) names.add(name); // today's, not yet appended to
+            }
+        }
+        Collections.sort(names, CHRONOLOGICAL);
+        return names;
+    }
+
+    private void scan(String name, Leaderboard board, long firstDay, long lastDay) throws IOException {
+        Path log = dir.resolve(name + LOG);
+        if (!Files.exists(log)) return;
+        try (BufferedReader br = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String ln;
+            while ((ln = br.readLine()) != null) {
+                String record = Journal.unframe(ln);
+                if (record == null) continue;
+                LeaderboardEntry e = LeaderboardEntry.parse(record);
+                if (e == null) continue;
+                long day = e.epochDay();
+                if (firstDay != Long.MIN_VALUE && (day < firstDay || day > lastDay)) continue;
+                board.offer(e);
+            }
+        }
+    }
+
+    private static void offerLine(Leaderboard board, String line) {
+        LeaderboardEntry e = LeaderboardEntry.parse(line);
+        if (e != null) board.offer(e);
+    }
+
+    // ---- sealing and summaries ----
+
+    /** Repairs the tail of a finished segment and returns its summary, rebuilding it if stale. */
+    private Summary seal(String name) throws IOException {
+        Path log = dir.resolve(name + LOG);
+        try (FileChannel ch = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Journal.recoverTail(ch);
+        }
+        Summary s = readSummary(name);
+        if (s != null && s.bytes == Files.size(log)) return s;
+        s = summarize(log);
+        writeSummary(dir.resolve(name + SUMMARY), s);
+        return s;
+    }
+
+    /** One pass over a log: counts, day range, top SUMMARY_TOP and every player's best. */
+    private static Summary summarize(Path log) throws IOException {
+        Summary s = new Summary();
+        PriorityQueue<Line> top = new PriorityQueue<Line>(SUMMARY_TOP + 1, WORST_FIRST);
+        Map<String, Line> bests = new HashMap<String, Line>();
+        long seq = 0;
+        s.bytes = Files.size(log);
+        try (BufferedReader br = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+            String ln;
+            while ((ln = br.readLine()) != null) {
+                String record = Journal.unframe(ln);
+                if (record == null) continue;
+                LeaderboardEntry e = LeaderboardEntry.parse(record);
+                if (e == null) continue;
+                s.count++;
+                s.maxScore = Math.max(s.maxScore, e.score);
+                long day = e.epochDay();
+                if (day >= 0) {
+                    s.firstDay = s.firstDay < 0 ? day : Math.min(s.firstDay, day);
+                    s.lastDay = Math.max(s.lastDay, day);
+                }
+                Line line = new Line(record, e, seq++);
+                top.add(line);
+                if (top.size() > SUMMARY_TOP) top.poll();
+                Line best = bests.get(e.name);
+                if (best == null || Leaderboard.RANKING.compare(e, best.entry) < 0) bests.put(e.name, line);
+            }
+        }
+        Map<Long, Line> tagged = new TreeMap<Long, Line>();
+        for (Line l : top) { l.top = true; tagged.put(l.seq, l); }
+        for (Line l : bests.values()) { l.best = true; tagged.put(l.seq, l); }
+        for (Line l : tagged.values()) {
+            s.lines.add(l.text);
+            s.tags.add(l.top && l.best ? "TB" : l.top ? "T" : "B");
+            if (l.top) s.top.add(l.text);
+        }
+        return s;
+    }
+
+    private Summary readSummary(String name) throws IOException {
+        Path p = dir.resolve(name + SUMMARY);
+        if (!Files.exists(p)) return null;
+        Summary s = new Summary();
+        try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
+            if (!SUMMARY_MAGIC.equals(br.readLine())) return null;
+            String ln;
+            while ((ln = br.readLine()) != null) {
+                int sp = ln.indexOf(' ');
+                if (sp < 0) continue;
+                String key = ln.substring(0, sp), value = ln.substring(sp + 1);
+                switch (key) {
+                    case "bytes": s.bytes = Long.parseLong(value); break;
+                    case "count": s.count = Long.parseLong(value); break;
+                    case "maxScore": s.maxScore = Integer.parseInt(value); break;
+                    case "firstDay": s.firstDay = Long.parseLong(value); break;
+                    case "lastDay": s.lastDay = Long.parseLong(value); break;
+                    case "T": case "TB": case "B":
+                        s.lines.add(value);
+                        s.tags.add(key);
+                        if (!"B".equals(key)) s.top.add(value);
+                        break;
+                    default: // unknown keys from newer versions are skipped
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return s;
+    }
+
+    private static void writeSummary(Path target, Summary s) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + TMP);
+        writeSummaryFile(tmp, s);
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeSummaryFile(Path p, Summary s) throws IOException {
+        try (BufferedWriter w = Files.newBufferedWriter(p, StandardCharsets.UTF_8)) {
+            w.write(SUMMARY_MAGIC + "\n");
+            w.write("bytes " + s.bytes + "\n");
+            w.write("count " + s.count + "\n");
+            w.write("maxScore " + s.maxScore + "\n");
+            w.write("firstDay " + s.firstDay + "\n");
+            w.write("lastDay " + s.lastDay + "\n");
+            for (int i = 0; i < s.lines.size(); i++) w.write(s.tags.get(i) + " " + s.lines.get(i) + "\n");
+        }
+        fsync(p);
+    }
+
+    // ---- compaction ----
+
+    private void scheduleCompaction() {
+        maintenance.execute(new Runnable() {
+            @Override public void run() {
+                try {
+                    compactOldDays();
+                } catch (IOException e) {
+                    System.err.println("Results compaction failed: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /** Compacts on the maintenance thread now and waits; runs inline when called from it. */
+    void compact() throws IOException {
+        if (Thread.currentThread() == maintenanceThread) {
+            compactOldDays();
+            return;
+        }
+        try {
+            maintenance.submit(new Callable<Void>() {
+                @Override public Void call() throws IOException {
+                    compactOldDays();
+                    return null;
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    /** Merges sealed day segments older than COMPACT_AFTER_DAYS into their month segments. */
+    private void compactOldDays() throws IOException {
+        String cutoff = LocalDate.now().minusDays(COMPACT_AFTER_DAYS).toString();
+        Map<String, List<String>> byMonth = new LinkedHashMap<String, List<String>>();
+        lock.readLock().lock();
+        try {
+            for (String name : sealed.keySet()) {
+                if (name.length() == 10 && name.compareTo(cutoff) < 0) {
+                    String month = name.substring(0, 7);
+                    if (!byMonth.containsKey(month)) byMonth.put(month, new ArrayList<String>());
+                    byMonth.get(month).add(name);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (Map.Entry<String, List<String>> m : byMonth.entrySet()) merge(m.getKey(), m.getValue());
+    }
+
+    private void merge(String month, List<String> days) throws IOException {
+        Path monthLog = dir.resolve(month + LOG);
+        List<Path> sources = new ArrayList<Path>();
+        if (Files.exists(monthLog)) sources.add(monthLog);
+        for (String d : days) sources.add(dir.resolve(d + LOG));
+
+        // 1. stage the merged log and its summary
+        Path tmpLog = dir.resolve(month + LOG + TMP);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmpLog), 1 << 16)) {
+            for (Path src : sources) Files.copy(src, out);
+        }
+        fsync(tmpLog);
+        Summary s = summarize(tmpLog);
+        Path tmpSum = dir.resolve(month + SUMMARY + TMP);
+        writeSummaryFile(tmpSum, s);
+
+        // 2. record the intent, 3. swap in the month, drop the days, 4. clear the intent
+        Path intent = dir.resolve(INTENT);
+        StringBuilder sb = new StringBuilder(month).append('\n');
+        for (String d : days) sb.append(d).append('\n');
+        Files.write(intent, sb.toString().getBytes(StandardCharsets.UTF_8));
+        fsync(intent);
+        lock.writeLock().lock();
+        try {
+            finishMerge(month, days);
+            sealed.put(month, s);
+            for (String d : days) sealed.remove(d);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Files.delete(intent);
+    }
+
+    private void finishMerge(String month, List<String> days) throws IOException {
+        Path tmpLog = dir.resolve(month + LOG + TMP), tmpSum = dir.resolve(month + SUMMARY + TMP);
+        if (Files.exists(tmpLog)) {
+            Files.move(tmpLog, dir.resolve(month + LOG), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        if (Files.exists(tmpSum)) {
+            Files.move(tmpSum, dir.resolve(month + SUMMARY), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        for (String d : days) {
+            Files.deleteIfExists(dir.resolve(d + LOG));
+            Files.deleteIfExists(dir.resolve(d + SUMMARY));
+        }
+    }
+
+    /**
+     * After a crash: with an intent file the swap had begun, so it is completed;
+     * without one, leftover staged files are discarded.
+     */
+    private void recoverCompaction() throws IOException {
+        Path intent = dir.resolve(INTENT);
+        if (Files.exists(intent)) {
+            // the intent is written only once both staged files are complete
+            List<String> lines = Files.readAllLines(intent, StandardCharsets.UTF_8);
+            if (!lines.isEmpty()) finishMerge(lines.get(0), lines.subList(1, lines.size()));
+            Files.delete(intent);
+        }
+        try (DirectoryStream<Path> tmps = Files.newDirectoryStream(dir, "*" + TMP)) {
+            for (Path t : tmps) Files.delete(t);
+        }
+    }
+
+    // ---- migration ----
+
+    /**
+     * Copies every line of a plain results file, unchanged, into the segment for
+     * its date (undated.log when it has none), staging in a temp directory that is
+     * renamed into place only after the line and byte counts have been checked.
+     */
+    static void migrate(Path resultsFile, Path dir) throws IOException {
+        Path staging = dir.resolveSibling(dir.getFileName() + TMP);
+        deleteTree(staging);
+        Files.createDirectories(staging);
+        long lines = 0, bytes = 0, written = 0;
+        if (Files.exists(resultsFile)) {
+            Map<String, OutputStream> outs = new HashMap<String, OutputStream>();
+            try (InputStream in = new java.io.BufferedInputStream(Files.newInputStream(resultsFile), 1 << 16)) {
+                ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+                int b;
+                boolean more = true;
+                while (more) {
+                    b = in.read();
+                    if (b >= 0) {
+                        line.write(b);
+                        bytes++;
+                        if (b != '\n') continue;
+                    } else {
+                        more = false;
+                        if (line.size() == 0) break;
+                        line.write('\n'); // last line had no terminator
+                    }
+                    byte[] raw = line.toByteArray();
+                    line.reset();
+                    String name = segmentOf(raw);
+                    OutputStream out = outs.get(name);
+                    if (out == null) {
+                        out = new BufferedOutputStream(Files.newOutputStream(staging.resolve(name + LOG)), 1 << 14);
+                        outs.put(name, out);
+                    }
+                    out.write(raw);
+                    written += raw.length;
+                    lines++;
+                }
+            } finally {
+                for (OutputStream out : outs.values()) out.close();
+            }
+            if (written < bytes || written > bytes + 1) {
+                throw new IOException("Migrating " + resultsFile + ": wrote " + written + " of " + bytes + " bytes");
+            }
+        }
+        Files.write(staging.resolve(MIGRATED), ("source " + resultsFile.getFileName() + "\nlines " + lines
+                + "\nbytes " + bytes + "\n").getBytes(StandardCharsets.UTF_8));
+        if (Files.exists(dir)) {
+            // created by an older run without the marker: keep its segments
+            try (DirectoryStream<Path> old = Files.newDirectoryStream(dir)) {
+                for (Path p : old) Files.move(p, staging.resolve(p.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.delete(dir);
+        }
+        Files.move(staging, dir, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Segment a raw line belongs in: its date, or undated. */
+    private static String segmentOf(byte[] raw) {
+        String text = new String(raw, StandardCharsets.UTF_8).trim();
+        String record = Journal.unframe(text);
+        LeaderboardEntry e = record == null ? null : LeaderboardEntry.parse(record);
+        long day = e == null ? -1 : e.epochDay();
+        return day < 0 ? UNDATED : LocalDate.ofEpochDay(day).toString();
+    }
+
+    // ---- helpers ----
+
+    private static String segmentName(Path log) {
+        String f = log.getFileName().toString();
+        return f.substring(0, f.length() - LOG.length());
+    }
+
+    private static void fsync(Path p) throws IOException {
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+    }
+
+    private static void deleteTree(Path p) throws IOException {
+        if (!Files.exists(p)) return;
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(p)) {
+            for (Path c : children) Files.delete(c);
+        }
+        Files.delete(p);
+    }
+
+    /** Stops maintenance (letting a running merge finish) and closes today's segment. */
+    @Override
+    public void close() {
+        maintenance.shutdown();
+        try {
+            maintenance.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (active != null) active.close();
+        }
+    }
+}
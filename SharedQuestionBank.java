@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Process-wide cache of the question bank for one questions file. The bank is
+ * loaded once and shared by every session; current() is a single volatile read.
+ * When watching is enabled, a WatchService thread reloads the file after it
+ * changes and swaps the new snapshot in atomically. Sessions that already picked
+ * their questions keep the snapshot they started with. The tag and keyword
+ * index of the current snapshot is built on first use and cached with it.
+ * The path may also name a directory: its questions*.txt files are ingested
+ * in parallel and merged by QuestionIngest, and any of them changing, appearing
+ * or disappearing triggers a reload.
+ */
+class SharedQuestionBank {
+    private static final long RELOAD_DEBOUNCE_MS = 250;
+    private static final ConcurrentMap<Path, SharedQuestionBank> INSTANCES =
+            new ConcurrentHashMap<Path, SharedQuestionBank>();
+
+    private final String path;
+    private final AtomicReference<QuestionBank> current = new AtomicReference<QuestionBank>();
+    private final AtomicReference<QuestionIndex> index = new AtomicReference<QuestionIndex>();
+    private volatile Thread watcher;
+
+    private SharedQuestionBank(String path) {
+        this.path = path;
+    }
+
+    /** The shared instance for path (one per normalized absolute path). */
+    static SharedQuestionBank forFile(String path) {
+        Path key = Paths.get(path).toAbsolutePath().normalize();
+        SharedQuestionBank bank = INSTANCES.get(key);
+        if (bank == null) {
+            SharedQuestionBank created = new SharedQuestionBank(path);
+            bank = INSTANCES.putIfAbsent(key, created);
+            if (bank == null) bank = created;
+        }
+        return bank;
+    }
+
+    /** The current snapshot, or null if it has not been loaded yet. */
+    QuestionBank peek() {
+        return current.get();
+    }
+
+    /** The current snapshot, loading it on first use. */
+    QuestionBank current() throws IOException {
+        return current(null);
+    }
+
+    /** As current(), reporting progress through the file if this call does the loading. */
+    QuestionBank current(QuestionReader.ProgressListener progress) throws IOException {
+        QuestionBank bank = current.get();
+        if (bank != null) return bank;
+        synchronized (this) {
+            bank = current.get();
+            if (bank == null) {
+                bank = load(progress);
+                current.set(bank);
+            }
+            return bank;
+        }
+    }
+
+    /**
+     * The index of bank, a snapshot returned by current(). Built on the calling
+     * thread the first time, then cached until the next reload.
+     */
+    QuestionIndex indexFor(QuestionBank bank) {
+        QuestionIndex idx = index.get();
+        if (idx != null && idx.getBank() == bank) return idx;
+        synchronized (index) {
+            idx = index.get();
+            if (idx == null || idx.getBank() != bank) {
+                long t0 = System.nanoTime();
+                idx = QuestionIndex.build(bank);
+                Metrics.INDEX_BUILD.recordSince(t0);
+                if (bank == current.get()) index.set(idx); // an old snapshot's index is not kept
+            }
+            return idx;
+        }
+    }
+
+    /** Loads the file again and publishes the result; the old snapshot stays valid. */
+    QuestionBank reload() throws IOException {
+        QuestionBank bank = load(null);
+        current.set(bank);
+        return bank;
+    }
+
+    private QuestionBank load(QuestionReader.ProgressListener progress) throws IOException {
+        long t0 = System.nanoTime();
+        try {
+            if (Files.isDirectory(Paths.get(path))) {
+                QuestionIngest.Result r = QuestionIngest.ingest(Paths.get(path), QuestionIngest.DEFAULT_GLOB,
+                        Runtime.getRuntime().availableProcessors(), progress);
+                for (QuestionIngest.Issue issue : r.report.issues) {
+                    System.err.println(Paths.get(path, issue.file) + ":" + issue.line + ": " + issue.kind + ": " + issue.message);
+                }
+                return r.bank;
+            }
+            return BinaryQuestionBank.openFor(path, progress);
+        } catch (IOException compileFailed) {
+            // e.g. Windows refuses to replace a .bin that an older snapshot still maps
+            return CompactQuestionBank.load(path, progress);
+        } finally {
+            Metrics.QUESTION_LOAD.recordSince(t0);
+        }
+    }
+
+    /**
+     * Starts a daemon thread that reloads the bank whenever the file (or, for a
+     * directory, any of its bank files) changes. Idempotent.
+     */
+    synchronized void startWatching() throws IOException {
+        if (watcher != null) return;
+        final Path file = Paths.get(path).toAbsolutePath();
+        final WatchService ws = FileSystems.getDefault().newWatchService();
+        final PathMatcher names;
+        if (Files.isDirectory(file)) {
+            names = FileSystems.getDefault().getPathMatcher("glob:" + QuestionIngest.DEFAULT_GLOB);
+            file.register(ws, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } else {
+            final Path fileName = file.getFileName();
+            names = new PathMatcher() {
+                @Override public boolean matches(Path name) { return fileName.equals(name); }
+            };
+            file.getParent().register(ws, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        Thread t = new Thread(new Runnable() {
+            @Override public void run() {
+                watchLoop(ws, names);
+            }
+        }, "question-bank-watcher");
+        t.setDaemon(true);
+        watcher = t;
+        t.start();
+    }
+
+    /** Stops the watcher thread, if any. */
+    synchronized void stopWatching() {
+        Thread t = watcher;
+        watcher = null;
+        if (t != null) t.interrupt();
+    }
+
+    private void watchLoop(WatchService ws, PathMatcher names) {
+        try {
+            while (watcher == Thread.currentThread()) {
+                WatchKey key = ws.take();
+                boolean changed = false;
+                for (WatchEvent<?> ev : key.pollEvents()) {
+                    if (ev.context() instanceof Path && names.matches((Path) ev.context())) changed = true;
+                }
+                key.reset();
+                if (!changed) continue;
+                // Editors often write in several steps; wait for the file to settle.
+                Thread.sleep(RELOAD_DEBOUNCE_MS);
+                while ((key = ws.poll()) != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+                try {
+                    reload();
+                } catch (IOException e) {
+                    System.err.println("Failed to reload " + path + ": " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException stop) {
+            // stopWatching()
+        } finally {
+            try { ws.close(); } catch (IOException ignore) {}
+        }
+    }
+}
@@ -0,0 +1,221 @@
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Hashed timing wheel shared by all quiz sessions for question deadlines and
+ * feedback pauses. One thread advances the wheel every tickMillis; schedule()
+ * and cancel() are O(1) from any thread. A timeout further away than one turn
+ * of the wheel stays in its bucket with a remaining-rounds counter instead of
+ * needing a coarser wheel.
+ *
+ * Tasks run on the wheel thread and must be short: hand anything slow (or any
+ * Swing work) off to another thread.
+ *
+ * A manual wheel (see manual()) has no thread and a virtual clock that stands
+ * still until advanceTo() moves it; the caller then runs the due tasks itself.
+ * Simulations use it to play out minutes of deadlines in milliseconds, in a
+ * repeatable order.
+ */
+class TimingWheel implements Closeable {
+    /** Handle for a scheduled task. */
+    interface Timeout {
+        /** Prevents the task from running; returns false if it already ran or was cancelled. */
+        boolean cancel();
+        boolean isCancelled();
+        boolean isExpired();
+    }
+
+    private static final int ST_PENDING = 0, ST_CANCELLED = 1, ST_EXPIRED = 2;
+
+    private static final class Node extends AtomicInteger implements Timeout {
+        final TimingWheel wheel;
+        final Runnable task;
+        final long deadline; // millis since the wheel started
+        long rounds;
+        Bucket bucket;
+        Node prev, next;
+
+        Node(TimingWheel wheel, Runnable task, long deadline) {
+            this.wheel = wheel; this.task = task; this.deadline = deadline;
+        }
+
+        @Override public boolean cancel() {
+            if (!compareAndSet(ST_PENDING, ST_CANCELLED)) return false;
+            wheel.cancelled.add(this); // unlinked by the wheel thread on its next tick
+            return true;
+        }
+
+        @Override public boolean isCancelled() { return get() == ST_CANCELLED; }
+        @Override public boolean isExpired() { return get() == ST_EXPIRED; }
+    }
+
+    /** Doubly-linked list of nodes; only touched by the wheel thread. */
+    private static final class Bucket {
+        Node head, tail;
+
+        void add(Node n) {
+            n.bucket = this;
+            if (tail == null) {
+                head = tail = n;
+            } else {
+                tail.next = n;
+                n.prev = tail;
+                tail = n;
+            }
+        }
+
+        void remove(Node n) {
+            if (n.prev != null) n.prev.next = n.next; else head = n.next;
+            if (n.next != null) n.next.prev = n.prev; else tail = n.prev;
+            n.prev = n.next = null;
+            n.bucket = null;
+        }
+    }
+
+    private final long tickMillis;
+    private final Bucket[] buckets;
+    private final int mask;
+    private final long startNanos = System.nanoTime();
+    private final boolean manual;
+    private volatile long virtualNow; // manual wheels only
+    private final Queue<Node> pending = new ConcurrentLinkedQueue<Node>();
+    private final Queue<Node> cancelled = new ConcurrentLinkedQueue<Node>();
+    private final Thread worker; // null for a manual wheel
+    private volatile boolean closed;
+    private long tick; // next tick to process (wheel thread only)
+
+    /** wheelSize is rounded up to a power of two. */
+    TimingWheel(long tickMillis, int wheelSize) {
+        this(tickMillis, wheelSize, false);
+    }
+
+    private TimingWheel(long tickMillis, int wheelSize, boolean manual) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("tickMillis must be > 0");
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) buckets[i] = new Bucket();
+        this.mask = size - 1;
+        this.manual = manual;
+        if (manual) {
+            this.worker = null;
+            return;
+        }
+        this.worker = new Thread(new Runnable() {
+            @Override public void run() { workLoop(); }
+        }, "timing-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** A wheel on a virtual clock starting at 0, driven by advanceTo() instead of a thread. */
+    static TimingWheel manual(long tickMillis, int wheelSize) {
+        return new TimingWheel(tickMillis, wheelSize, true);
+    }
+
+    /**
+     * Milliseconds since the wheel was created (on a manual wheel, the virtual
+     * time last set by advanceTo); the time base for deadlines.
+     */
+    long currentTimeMillis() {
+        return manual ? virtualNow : (System.nanoTime() - startNanos) / 1000000L;
+    }
+
+    /**
+     * Manual wheels only: moves the virtual clock forward to millis, running
+     * every task that falls due on the way on the calling thread, tick by tick.
+     * While a task runs, the clock reads the end of its tick. Tasks due in the
+     * same tick run in the order they were scheduled, so a single-threaded
+     * caller always sees the same order.
+     */
+    synchronized void advanceTo(long millis) {
+        if (!manual) throw new IllegalStateException("advanceTo on a wheel that runs its own thread");
+        while ((tick + 1) * tickMillis <= millis) {
+            virtualNow = (tick + 1) * tickMillis;
+            runTick();
+        }
+        virtualNow = Math.max(virtualNow, millis);
+    }
+
+    /** Runs task on the wheel thread after delayMillis (rounded up to the tick). */
+    Timeout schedule(Runnable task, long delayMillis) {
+        Node n = new Node(this, task, currentTimeMillis() + Math.max(0, delayMillis));
+        if (closed) {
+            n.set(ST_CANCELLED);
+            return n;
+        }
+        pending.add(n);
+        return n;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (worker != null) worker.interrupt();
+    }
+
+    private void workLoop() {
+        while (!closed) {
+            long wakeAt = (tick + 1) * tickMillis;
+            long sleep = wakeAt - currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (closed) return;
+                }
+            }
+            long now = currentTimeMillis();
+            while ((tick + 1) * tickMillis <= now) runTick();
+        }
+    }
+
+    /** Processes tick number tick (wheel thread, or advanceTo's caller). */
+    private void runTick() {
+        transferCancelled();
+        transferPending();
+        expire(buckets[(int) (tick & mask)]);
+        tick++;
+    }
+
+    private void transferCancelled() {
+        Node n;
+        while ((n = cancelled.poll()) != null) {
+            if (n.bucket != null) n.bucket.remove(n);
+        }
+    }
+
+    private void transferPending() {
+        Node n;
+        while ((n = pending.poll()) != null) {
+            if (n.get() != ST_PENDING) continue;
+            long due = n.deadline / tickMillis;
+            long target = Math.max(due, tick); // already overdue: fire on this tick
+            n.rounds = (target - tick) / buckets.length;
+            buckets[(int) (target & mask)].add(n);
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        Node n = bucket.head;
+        while (n != null) {
+            Node next = n.next;
+            if (n.rounds > 0) {
+                n.rounds--;
+            } else {
+                bucket.remove(n);
+                if (n.compareAndSet(ST_PENDING, ST_EXPIRED)) {
+                    try {
+                        n.task.run();
+                    } catch (RuntimeException e) {
+                        Thread t = Thread.currentThread();
+                        t.getUncaughtExceptionHandler().uncaughtException(t, e);
+                    }
+                }
+            }
+            n = next;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Heap footprint of the question bank backends on a large synthetic bank:
+ *
+ *   list    - QuestionLoader.loadFromFile, one object graph per question
+ *   compact - CompactQuestionBank, one UTF-8 arena plus int records
+ *   binary  - BinaryQuestionBank, the compiled .bin mapped outside the heap
+ *
+ * Each bank is loaded on its own, and the heap in use after a full GC is
+ * compared with the baseline. Afterwards a sample of questions is checked for
+ * identical text, options, answers, ids and grading across the three.
+ *
+ *   java -Xmx4g -cp out BankFootprint [questions, default 1000000]
+ */
+class BankFootprint {
+    private static final int SAMPLE = 20000;
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        Path file = SyntheticBanks.writeQuestions(Files.createTempFile("footprint", ".txt"), n, 42);
+        Path bin = Paths.get(file + ".bin");
+        try {
+            String path = file.toString();
+            System.out.printf("%,d questions, %,d bytes of questions.txt%n%n", n, Files.size(file));
+            System.out.printf("%-8s %16s %12s %12s%n", "bank", "heap bytes", "per question", "load ms");
+
+            long base = usedAfterGc();
+            long t0 = System.nanoTime();
+            List<Question> list = QuestionLoader.loadFromFile(path);
+            long listBytes = report("list", base, t0, list.size());
+
+            base = usedAfterGc();
+            t0 = System.nanoTime();
+            CompactQuestionBank compact = CompactQuestionBank.load(path, null);
+            long compactBytes = report("compact", base, t0, compact.size());
+
+            base = usedAfterGc();
+            t0 = System.nanoTime();
+            BinaryQuestionBank binary = BinaryQuestionBank.openFor(path);
+            report("binary", base, t0, binary.size());
+
+            System.out.printf("%ncompact arena: %,d bytes of UTF-8 in %,d distinct strings (%.1f%% of list heap)%n",
+                    compact.arenaBytes(), compact.strings(), 100.0 * compactBytes / listBytes);
+
+            verify(list, compact, binary);
+        } finally {
+            Files.deleteIfExists(bin);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static long report(String name, long base, long t0, int size) {
+        long loadMs = (System.nanoTime() - t0) / 1000000;
+        long bytes = usedAfterGc() - base;
+        System.out.printf("%-8s %,16d %12.1f %12d%n", name, bytes, (double) bytes / size, loadMs);
+        return bytes;
+    }
+
+    private static void verify(List<Question> list, QuestionBank compact, QuestionBank binary) {
+        if (compact.size() != list.size() || binary.size() != list.size()) {
+            throw new AssertionError("sizes differ: " + list.size() + " " + compact.size() + " " + binary.size());
+        }
+        Random r = new Random(7);
+        for (int s = 0; s < SAMPLE; s++) {
+            int i = r.nextInt(list.size());
+            Question want = list.get(i);
+            same(i, want, compact.get(i), r);
+            same(i, want, binary.get(i), r);
+        }
+        System.out.printf("%,d sampled questions identical across all three banks%n", SAMPLE);
+    }
+
+    private static void same(int i, Question want, Question got, Random r) {
+        String right = SyntheticBanks.rightAnswer(want);
+        String wrong = SyntheticBanks.wrongAnswer(want, r);
+        boolean ok = want.getType() == got.getType()
+                && want.getId() == got.getId()
+                && want.getQuestionText().equals(got.getQuestionText())
+                && want.getCorrectAnswerAsString().equals(got.getCorrectAnswerAsString())
+                && want.isCorrect(right) == got.isCorrect(right)
+                && want.isCorrect(wrong) == got.isCorrect(wrong);
+        if (ok && want instanceof MCQQuestion) {
+            ok = Arrays.equals(((MCQQuestion) want).getOptions(), ((MCQQuestion) got).getOptions());
+        }
+        if (!ok) throw new AssertionError("question " + i + " differs: " + want.getQuestionText());
+    }
+
+    private static long usedAfterGc() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.Random;
+
+/*
+ * Checks that the allocation-free Question.grade(CharSequence) paths agree with
+ * the original String-based isCorrect implementations (kept verbatim below) over
+ * many randomized answer shapes: padded and signed numbers, overflowing numbers,
+ * non-ASCII digits, mixed-case option text, tricky case-folding characters.
+ * Fill-in-the-blank questions are checked in AnswerMatcher.Options.EXACT mode,
+ * the only mode that promises the original behaviour.
+ *
+ *   java -cp out GradingAgreementCheck [cases]     (exit status 1 on any mismatch)
+ */
+class GradingAgreementCheck {
+    private static final String[] FRAGMENTS = {
+        "1", "2", "3", "4", "0", "-", "+", " ", "\t", "٣", "2147483648", "-2147483648", "99999999999",
+        "true", "TRUE", "t", "F", "false", "yes", "Paris", "pARIS", "extends", "EXTENDS", "İ", "ı",
+        "i", "I", "ß", "SS", "K", "k", "x"
+    };
+
+    public static void main(String[] args) {
+        int cases = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+        Random r = new Random(11);
+        String[][] optionSets = {
+            { "Berlin", "Madrid", "Paris", "Rome" },
+            { "i", "İ", "ß", "k" },
+            { "1", "two", " 3 ", "K" },
+        };
+        String[] fibAnswers = { "extends", "i", "ß", "Paris", " k " };
+        int mismatches = 0;
+        for (int c = 0; c < cases; c++) {
+            String answer = randomAnswer(r);
+            CharSequence asBuilder = new StringBuilder(answer);
+            String[] opts = optionSets[r.nextInt(optionSets.length)];
+            int idx = 1 + r.nextInt(4);
+            MCQQuestion mcq = new MCQQuestion("q", opts, idx);
+            boolean tfCorrect = r.nextBoolean();
+            TrueFalseQuestion tf = new TrueFalseQuestion("q", tfCorrect);
+            String fibKey = fibAnswers[r.nextInt(fibAnswers.length)];
+            FillBlankQuestion fib = new FillBlankQuestion("q", fibKey, AnswerMatcher.Options.EXACT);
+
+            mismatches += check("MCQ", answer, legacyMcq(opts, idx, answer), mcq.grade(asBuilder));
+            mismatches += check("TF", answer, legacyTf(tfCorrect, answer), tf.grade(asBuilder));
+            mismatches += check("FIB", answer, legacyFib(fibKey.trim(), answer), fib.grade(asBuilder));
+            if (mismatches > 20) break;
+        }
+        System.out.println(mismatches == 0 ? "OK: " + cases + " cases agree" : "FAILED: " + mismatches + " mismatches");
+        if (mismatches != 0) System.exit(1);
+    }
+
+    private static int check(String kind, String answer, boolean expected, boolean actual) {
+        if (expected == actual) return 0;
+        System.out.println(kind + " mismatch for [" + answer + "]: legacy=" + expected + " grade=" + actual);
+        return 1;
+    }
+
+    private static String randomAnswer(Random r) {
+        StringBuilder sb = new StringBuilder();
+        int n = r.nextInt(4);
+        for (int i = 0; i < n; i++) sb.append(FRAGMENTS[r.nextInt(FRAGMENTS.length)]);
+        return sb.toString();
+    }
+
+    // ---- original implementations ----
+
+    static boolean legacyMcq(String[] options, int correctIndex, String userAnswer) {
+        if (userAnswer == null) return false;
+        userAnswer = userAnswer.trim();
+        try {
+            int idx = Integer.parseInt(userAnswer);
+            return idx == correctIndex;
+        } catch (NumberFormatException ignore) {
+            return options[correctIndex - 1].equalsIgnoreCase(userAnswer);
+        }
+    }
+
+    static boolean legacyTf(boolean correct, String userAnswer) {
+        if (userAnswer == null) return false;
+        return ("true".equalsIgnoreCase(userAnswer) || "t".equalsIgnoreCase(userAnswer)) == correct
+            || ("false".equalsIgnoreCase(userAnswer) || "f".equalsIgnoreCase(userAnswer)) == !correct;
+    }
+
+    static boolean legacyFib(String answer, String userAnswer) {
+        if (userAnswer == null) return false;
+        return answer.equalsIgnoreCase(userAnswer.trim());
+    }
+}
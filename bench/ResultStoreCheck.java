@@ -0,0 +1,96 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+ * Checks that ResultStore keeps sealing and compacting across day boundaries:
+ * appends results for several consecutive days ending today (each new day
+ * rotates the segment and seals the previous one on the maintenance thread),
+ * then compacts, closes and reopens the store, failing if any step hangs or a
+ * result goes missing. Old days must end up merged into month segments.
+ *
+ *   java -cp out ResultStoreCheck [days, default 20]     (exit status 1 on failure)
+ */
+class ResultStoreCheck {
+    private static final long STEP_TIMEOUT_S = 5;
+    private static final int PER_DAY = 3;
+
+    public static void main(String[] args) throws Exception {
+        int days = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        final Path results = Files.createTempFile("store-check", ".txt");
+        Files.delete(results);
+        final ResultStore store = ResultStore.open(results.toString());
+        boolean ok = true;
+        try {
+            LocalDate first = LocalDate.now().minusDays(days - 1);
+            for (int d = 0; d < days; d++) {
+                for (int i = 0; i < PER_DAY; i++) {
+                    String line = "player" + i + " - " + (d % 10) + "/10 @ " + first.plusDays(d) + " 12:0" + i;
+                    store.append(line, LeaderboardEntry.parse(line)).get(STEP_TIMEOUT_S, TimeUnit.SECONDS);
+                }
+            }
+            ok &= step("compact after " + (days - 1) + " day rollovers", new Callable<Object>() {
+                @Override public Object call() throws IOException {
+                    store.compact();
+                    return null;
+                }
+            });
+            ok &= step("close", new Callable<Object>() {
+                @Override public Object call() {
+                    store.close();
+                    return null;
+                }
+            });
+            ResultStore reopened = ResultStore.open(results.toString());
+            int found = reopened.top(first, LocalDate.now(), days * PER_DAY + 1).size();
+            reopened.close();
+            if (found != days * PER_DAY) {
+                System.out.println("FAIL reopen: " + found + " results, expected " + days * PER_DAY);
+                ok = false;
+            }
+            int months = 0, oldDays = 0;
+            String cutoff = LocalDate.now().minusDays(ResultStore.COMPACT_AFTER_DAYS).toString();
+            try (DirectoryStream<Path> segments = Files.newDirectoryStream(ResultStore.directoryFor(results.toString()), "*.log")) {
+                for (Path seg : segments) {
+                    String name = seg.getFileName().toString();
+                    if (name.length() == "2025-01.log".length()) months++;
+                    else if (name.substring(0, 10).compareTo(cutoff) < 0) oldDays++;
+                }
+            }
+            if (days > ResultStore.COMPACT_AFTER_DAYS && (months == 0 || oldDays > 0)) {
+                System.out.println("FAIL compaction: " + months + " month segments, " + oldDays + " old day segments left");
+                ok = false;
+            }
+            System.out.println(ok ? "OK " + found + " results over " + days + " days, " + months + " month segments" : "FAILED");
+        } finally {
+            try (DirectoryStream<Path> segments = Files.newDirectoryStream(ResultStore.directoryFor(results.toString()))) {
+                for (Path seg : segments) Files.delete(seg);
+            }
+            Files.delete(ResultStore.directoryFor(results.toString()));
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    /** Runs one store call with a timeout, so a deadlock fails the check instead of hanging it. */
+    private static boolean step(String name, Callable<Object> call) throws Exception {
+        ExecutorService ex = Executors.newSingleThreadExecutor();
+        try {
+            Future<Object> f = ex.submit(call);
+            f.get(STEP_TIMEOUT_S, TimeUnit.SECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            System.out.println("FAIL " + name + ": no result after " + STEP_TIMEOUT_S + " s");
+            return false;
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Checks that QuizServer's /answer moves a session on exactly once per
+ * question, against an in-process server on a free port: the same answer sent
+ * twice in a row, the same answer sent by many threads at once, a stale
+ * question index, and an answer arriving after the deadline already graded the
+ * question. Every repeat must get 409 and leave the session where the single
+ * accepted answer put it.
+ *
+ *   java -cp out ServerDoubleSubmitCheck [concurrent copies, default 16]     (exit status 1 on failure)
+ */
+class ServerDoubleSubmitCheck {
+    private static final int SECONDS_PER_QUESTION = 2;
+    private static final int QUESTIONS = 5;
+
+    private static String base;
+    private static boolean ok = true;
+
+    public static void main(String[] args) throws Exception {
+        int copies = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        Path dir = Files.createTempDirectory("double-submit");
+        StringBuilder bank = new StringBuilder();
+        for (int i = 0; i < QUESTIONS; i++) bank.append("TF\nStatement ").append(i).append(" is true.\nTrue\n\n");
+        Path questions = Files.write(dir.resolve("questions.txt"), bank.toString().getBytes(StandardCharsets.UTF_8));
+        QuizEngine engine = new QuizEngine(questions.toString(), dir.resolve("results.txt").toString(),
+                dir.resolve("answers.log").toString(), QUESTIONS, SECONDS_PER_QUESTION, 10);
+        QuizServer server = new QuizServer(engine, 0);
+        server.start();
+        base = "http://localhost:" + server.getPort();
+        try {
+            // Sequential repeat: the second copy is rejected, the session stays on question 2
+            String session = start("twice");
+            expect("first answer", post("/answer", "session=" + session + "&question=1&answer=True"), 200, "\"index\":2");
+            expect("repeated answer", post("/answer", "session=" + session + "&question=1&answer=True"), 409, null);
+            expect("after repeat", post("/question", "session=" + session), 200, "\"index\":2");
+            expect("missing index", post("/answer", "session=" + session + "&answer=True"), 400, null);
+
+            // Concurrent copies: exactly one is graded and the session moves on by one
+            List<Response> replies = concurrently(copies, "/answer", "session=" + session + "&question=2&answer=True");
+            int accepted = 0, conflicts = 0;
+            for (Response r : replies) {
+                if (r.status == 200) accepted++;
+                else if (r.status == 409) conflicts++;
+            }
+            if (accepted != 1 || conflicts != copies - 1) {
+                fail(copies + " concurrent copies: " + accepted + " accepted, " + conflicts + " conflicts");
+            }
+            expect("after concurrent copies", post("/question", "session=" + session), 200, "\"index\":3");
+            expect("score after copies", post("/answer", "session=" + session + "&question=3&answer=True"), 200,
+                    "\"score\":3");
+            expect("stale index", post("/answer", "session=" + session + "&question=2&answer=True"), 409, null);
+
+            // Deadline first: the first late answer takes the timed-out result and moves on, a repeat does not
+            String late = start("late");
+            Thread.sleep(SECONDS_PER_QUESTION * 1000L + 500);
+            expect("answer after time-up", post("/answer", "session=" + late + "&question=1&answer=True"), 200,
+                    "\"timedOut\":true");
+            expect("repeat after time-up", post("/answer", "session=" + late + "&question=1&answer=True"), 409, null);
+            expect("after time-up", post("/question", "session=" + late), 200, "\"index\":2");
+            System.out.println(ok ? "OK" : "FAILED");
+        } finally {
+            server.stop();
+            engine.close();
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static final class Response {
+        final int status;
+        final String body;
+        Response(int status, String body) { this.status = status; this.body = body; }
+    }
+
+    private static String start(String name) throws IOException {
+        Response r = post("/start", "name=" + name);
+        int i = r.body.indexOf("\"session\":");
+        if (r.status != 200 || i < 0) throw new IOException("start failed: " + r.body);
+        int from = i + "\"session\":".length(), to = from;
+        while (to < r.body.length() && Character.isDigit(r.body.charAt(to))) to++;
+        return r.body.substring(from, to);
+    }
+
+    private static List<Response> concurrently(int copies, final String path, final String form) throws Exception {
+        ExecutorService ex = Executors.newFixedThreadPool(copies);
+        final CountDownLatch go = new CountDownLatch(1);
+        List<Future<Response>> futures = new ArrayList<Future<Response>>();
+        for (int i = 0; i < copies; i++) {
+            futures.add(ex.submit(new Callable<Response>() {
+                @Override public Response call() throws Exception {
+                    go.await();
+                    return post(path, form);
+                }
+            }));
+        }
+        go.countDown();
+        List<Response> out = new ArrayList<Response>();
+        for (Future<Response> f : futures) out.add(f.get());
+        ex.shutdown();
+        return Collections.unmodifiableList(out);
+    }
+
+    private static void expect(String step, Response r, int status, String contains) {
+        if (r.status != status || (contains != null && !r.body.contains(contains))) {
+            fail(step + ": expected " + status + (contains == null ? "" : " with " + contains)
+                    + ", got " + r.status + " " + r.body);
+        }
+    }
+
+    private static void fail(String message) {
+        System.out.println("FAIL " + message);
+        ok = false;
+    }
+
+    private static Response post(String path, String form) throws IOException {
+        HttpURLConnection c = (HttpURLConnection) new URL(base + path).openConnection();
+        c.setRequestMethod("POST");
+        c.setDoOutput(true);
+        c.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        byte[] bytes = form.getBytes(StandardCharsets.UTF_8);
+        c.setFixedLengthStreamingMode(bytes.length);
+        try (OutputStream os = c.getOutputStream()) {
+            os.write(bytes);
+        }
+        int status = c.getResponseCode();
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(512);
+        try (InputStream is = status < 400 ? c.getInputStream() : c.getErrorStream()) {
+            byte[] chunk = new byte[1024];
+            int n;
+            while ((n = is.read(chunk)) > 0) buf.write(chunk, 0, n);
+        }
+        return new Response(status, new String(buf.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,153 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/*
+ * Generators for large synthetic questions.txt, results.txt and answers.log
+ * files, in the formats the application reads. Output is deterministic for a
+ * given seed.
+ */
+class SyntheticBanks {
+    private static final String[] WORDS = {
+        "Java", "class", "interface", "method", "thread", "stream", "lambda", "object",
+        "inheritance", "polymorphism", "exception", "collection", "generic", "static",
+        "final", "abstract", "package", "import", "compiler", "runtime", "heap", "stack"
+    };
+
+    private static final String[] CATEGORIES = { "Programming", "Databases", "Networks", "Systems", "Tools" };
+    private static final String[] TOPICS = new String[60];
+
+    static {
+        for (int i = 0; i < TOPICS.length; i++) TOPICS[i] = WORDS[i % WORDS.length].toLowerCase(Locale.ROOT) + "-" + (i / WORDS.length);
+    }
+
+    /** Writes n question blocks, cycling MCQ / TF / FIB (roughly 60/20/20). */
+    static Path writeQuestions(Path file, int n, long seed) throws IOException {
+        return writeQuestions(file, n, seed, false);
+    }
+
+    /**
+     * As writeQuestions(file, n, seed), optionally preceding every block with a
+     * CATEGORY line and a TAGS line of one to three topics, skewed so that a few
+     * topics are common and most are rare. The questions themselves are the same.
+     */
+    static Path writeQuestions(Path file, int n, long seed, boolean tagged) throws IOException {
+        Random r = new Random(seed);
+        Random t = new Random(seed + 1);
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < n; i++) {
+                if (tagged) {
+                    w.write("CATEGORY: " + CATEGORIES[t.nextInt(CATEGORIES.length)] + "\n");
+                    w.write("TAGS: ");
+                    for (int k = 0, tags = 1 + t.nextInt(3); k < tags; k++) {
+                        double u = t.nextDouble();
+                        w.write((k > 0 ? ", " : "") + TOPICS[(int) (TOPICS.length * u * u * u)]);
+                    }
+                    w.write("\n");
+                }
+                int kind = r.nextInt(10);
+                if (kind < 6) {
+                    w.write("MCQ\n");
+                    w.write(sentence(r, 8) + "?\n");
+                    for (int k = 0; k < 4; k++) w.write(sentence(r, 2) + "\n");
+                    w.write((1 + r.nextInt(4)) + "\n");
+                } else if (kind < 8) {
+                    w.write("TF\n");
+                    w.write(sentence(r, 9) + ".\n");
+                    w.write(r.nextBoolean() ? "True\n" : "False\n");
+                } else {
+                    w.write("FIB\n");
+                    w.write(sentence(r, 7) + " ____.\n");
+                    w.write(WORDS[r.nextInt(WORDS.length)] + "\n");
+                }
+                w.write("\n");
+            }
+        }
+        return file;
+    }
+
+    /** Writes n result lines ("name - score/total @ yyyy-MM-dd HH:mm") spread over a year. */
+    static Path writeResults(Path file, int n, long seed) throws IOException {
+        Random r = new Random(seed);
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < n; i++) {
+                w.write(String.format("player%d - %d/10 @ 2025-%02d-%02d %02d:%02d%n",
+                        r.nextInt(100000), r.nextInt(11), 1 + r.nextInt(12), 1 + r.nextInt(28),
+                        r.nextInt(24), r.nextInt(60)));
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Writes n framed answer records (AnswerLog format) for quizzes of 10 questions
+     * drawn from bank. Each player has an ability and each question a difficulty,
+     * and the chance of a right answer follows the logistic of their difference,
+     * so AnswerAnalytics has real difficulty and discrimination to find.
+     */
+    static Path writeAnswers(Path file, List<Question> bank, int n, long seed) throws IOException {
+        Random r = new Random(seed);
+        double[] difficulty = new double[bank.size()];
+        for (int i = 0; i < difficulty.length; i++) difficulty[i] = r.nextGaussian();
+        CRC32 crc = new CRC32();
+        StringBuilder sb = new StringBuilder(128);
+        long time = 1755600000000L, session = 0;
+        double ability = 0;
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < n; i++) {
+                if (i % 10 == 0) {
+                    session++;
+                    ability = r.nextGaussian();
+                }
+                int qi = r.nextInt(bank.size());
+                Question q = bank.get(qi);
+                boolean timedOut = r.nextInt(20) == 0;
+                boolean correct = !timedOut && r.nextDouble() < 1 / (1 + Math.exp(difficulty[qi] - ability));
+                String answer = timedOut ? "" : correct ? rightAnswer(q) : wrongAnswer(q, r);
+                sb.setLength(0);
+                sb.append(time += r.nextInt(5000)).append('\t').append(session).append('\t');
+                AnswerLog.appendHex(sb, q.getId());
+                sb.append('\t').append(q.getType()).append('\t').append(correct ? 1 : 0)
+                  .append('\t').append(timedOut ? 1 : 0).append('\t').append(timedOut ? 0 : r.nextInt(11))
+                  .append('\t');
+                AnswerLog.escape(answer, sb);
+                crc.reset();
+                crc.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+                w.write(sb.toString());
+                w.write(String.format("\t%08x%n", crc.getValue()));
+            }
+        }
+        return file;
+    }
+
+    /** An answer a player would type that q grades as correct. */
+    static String rightAnswer(Question q) {
+        if (q instanceof MCQQuestion) return String.valueOf(((MCQQuestion) q).getCorrectIndex());
+        if (q instanceof TrueFalseQuestion) return ((TrueFalseQuestion) q).getCorrect() ? "True" : "False";
+        return q.getCorrectAnswerAsString();
+    }
+
+    /** A plausible answer that q grades as wrong. */
+    static String wrongAnswer(Question q, Random r) {
+        if (q instanceof MCQQuestion) {
+            return String.valueOf(1 + (((MCQQuestion) q).getCorrectIndex() + r.nextInt(3)) % 4);
+        }
+        if (q instanceof TrueFalseQuestion) return ((TrueFalseQuestion) q).getCorrect() ? "False" : "True";
+        return WORDS[r.nextInt(WORDS.length)] + " " + WORDS[r.nextInt(WORDS.length)];
+    }
+
+    private static String sentence(Random r, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(WORDS[r.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
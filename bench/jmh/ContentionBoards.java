@@ -0,0 +1,112 @@
+import quizbench.ContendedBoard;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Fixtures for quizbench.LeaderboardContention: the live leaderboard and the
+ * previous design (a bounded heap behind synchronized offer/top, kept below
+ * verbatim), fed by one of two workloads:
+ *
+ *   random - scores 0..10, so after warm-up almost no result makes the board;
+ *   rising - every result beats the board, the worst case for copy-on-write.
+ */
+public class ContentionBoards {
+    private static final int CAPACITY = 10;
+    private static final String[] TIMESTAMPS = new String[24 * 60]; // every minute of today
+
+    static {
+        String today = LocalDate.now().toString();
+        for (int m = 0; m < TIMESTAMPS.length; m++) {
+            TIMESTAMPS[m] = today + String.format(" %02d:%02d", m / 60, m % 60);
+        }
+    }
+
+    /** The two boards under test, behind one interface. */
+    interface Board {
+        void offer(LeaderboardEntry e);
+        List<LeaderboardEntry> top();
+    }
+
+    public static ContendedBoard create(String board, String workload) {
+        final Board b;
+        if ("synchronized-heap".equals(board)) {
+            b = new SynchronizedHeapBoard(CAPACITY);
+        } else if ("copy-on-write".equals(board)) {
+            final Leaderboard live = new Leaderboard(CAPACITY);
+            b = new Board() {
+                @Override public void offer(LeaderboardEntry e) { live.offer(e); }
+                @Override public List<LeaderboardEntry> top() { return live.top(Leaderboard.Period.DAILY); }
+            };
+        } else {
+            throw new IllegalArgumentException("Unknown board " + board);
+        }
+        if (!"random".equals(workload) && !"rising".equals(workload)) {
+            throw new IllegalArgumentException("Unknown workload " + workload);
+        }
+        final boolean rising = "rising".equals(workload);
+        final AtomicInteger best = new AtomicInteger();
+        return new ContendedBoard() {
+            @Override public void offer(String player) {
+                ThreadLocalRandom r = ThreadLocalRandom.current();
+                int score = rising ? best.incrementAndGet() : r.nextInt(11);
+                b.offer(new LeaderboardEntry(player, score, 10, TIMESTAMPS[r.nextInt(TIMESTAMPS.length)]));
+            }
+            @Override public int top() {
+                return b.top().size();
+            }
+        };
+    }
+
+    /** The leaderboard before the live boards: a bounded min-heap behind one lock. */
+    static final class SynchronizedHeapBoard implements Board {
+        private static final class Ranked {
+            final LeaderboardEntry entry;
+            final long seq;
+            Ranked(LeaderboardEntry entry, long seq) { this.entry = entry; this.seq = seq; }
+        }
+
+        private static final Comparator<Ranked> BEST_FIRST = new Comparator<Ranked>() {
+            @Override public int compare(Ranked a, Ranked b) {
+                int cmp = Leaderboard.RANKING.compare(a.entry, b.entry);
+                return cmp != 0 ? cmp : Long.compare(a.seq, b.seq);
+            }
+        };
+
+        private final int capacity;
+        private final PriorityQueue<Ranked> heap;
+        private long seq = 0;
+
+        SynchronizedHeapBoard(int capacity) {
+            this.capacity = capacity;
+            this.heap = new PriorityQueue<Ranked>(Math.max(1, capacity + 1), Collections.reverseOrder(BEST_FIRST));
+        }
+
+        @Override
+        public synchronized void offer(LeaderboardEntry e) {
+            if (capacity <= 0) return;
+            Ranked r = new Ranked(e, seq++);
+            if (heap.size() < capacity) {
+                heap.add(r);
+            } else if (BEST_FIRST.compare(r, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(r);
+            }
+        }
+
+        @Override
+        public synchronized List<LeaderboardEntry> top() {
+            List<Ranked> ranked = new ArrayList<Ranked>(heap);
+            Collections.sort(ranked, BEST_FIRST);
+            List<LeaderboardEntry> out = new ArrayList<LeaderboardEntry>(ranked.size());
+            for (Ranked r : ranked) out.add(r.entry);
+            return out;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import quizbench.SampledBank;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+ * Fixture for quizbench.FilteredSampling: a synthetic tagged bank of n
+ * questions compiled to .bin and indexed, and one filter to draw 20-question
+ * quizzes with, through the QuestionIndex or by a linear scan that decodes and
+ * tests every question. Setting up fails if the ids the index matches differ
+ * from the scan's, or if it cannot fill a quiz the scan could.
+ */
+public class FilteredWorkloads {
+    private static final int QUIZ = 20;
+
+    public static SampledBank create(String spec, int n) throws Exception {
+        final Path file = SyntheticBanks.writeQuestions(Files.createTempFile("filtered", ".txt"), n, 42, true);
+        final Path bin = Paths.get(file + ".bin");
+        final QuestionBank bank = BinaryQuestionBank.openFor(file.toString());
+        final QuestionIndex index = QuestionIndex.build(bank);
+        final QuestionFilter f = QuestionFilter.parse(spec);
+        final QuestionSampler sampler = new QuestionSampler(new Random(1));
+        SampledBank sampled = new SampledBank() {
+            @Override public long indexed() {
+                return index.sample(f, QUIZ, sampler).length;
+            }
+            @Override public long scanned() {
+                int hits = 0;
+                for (int i = 0; i < bank.size(); i++) if (f.matches(bank.get(i))) hits++;
+                return hits;
+            }
+            @Override public void close() throws Exception {
+                Files.deleteIfExists(bin);
+                Files.deleteIfExists(file);
+            }
+        };
+        int[] scanned = new int[bank.size()];
+        int hits = 0;
+        for (int i = 0; i < bank.size(); i++) if (f.matches(bank.get(i))) scanned[hits++] = i;
+        if (!Arrays.equals(index.matching(f).toArray(), Arrays.copyOf(scanned, hits))) {
+            sampled.close();
+            throw new AssertionError("index and scan disagree on " + spec);
+        }
+        if (sampled.indexed() != Math.min(QUIZ, hits)) {
+            sampled.close();
+            throw new AssertionError("short quiz for " + spec);
+        }
+        return sampled;
+    }
+}
@@ -0,0 +1,368 @@
+import quizbench.Workload;
+
+import javax.swing.ButtonGroup;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JRadioButton;
+import javax.swing.JTextField;
+import java.awt.BorderLayout;
+import java.awt.Graphics2D;
+import java.awt.GridLayout;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Fixtures for quizbench.QuizBenchmark: the loading, grading, leaderboard,
+ * analytics, adaptive, metrics and rendering operations, built by name (with a
+ * bank, results or answer-log size where one applies) on synthetic data.
+ * Everything a workload writes is removed again by its close().
+ */
+public class QuizWorkloads {
+    private static final int THREADS_AVAILABLE = Runtime.getRuntime().availableProcessors();
+
+    public static Workload create(String op, int size) throws Exception {
+        switch (op) {
+            // loading
+            case "QuestionLoader.loadFromFile": {
+                final Path bank = bank(size, false);
+                return new Workload() {
+                    @Override public long run() throws Exception {
+                        return QuestionLoader.loadFromFile(bank.toString()).size();
+                    }
+                    @Override public void close() throws Exception { Files.delete(bank); }
+                };
+            }
+            case "CompactQuestionBank.load": {
+                final Path bank = bank(size, false);
+                return new Workload() {
+                    @Override public long run() throws Exception {
+                        return CompactQuestionBank.load(bank.toString(), null).size();
+                    }
+                    @Override public void close() throws Exception { Files.delete(bank); }
+                };
+            }
+            case "CompactQuestionBank.get+text": {
+                Path bank = bank(size, false);
+                final CompactQuestionBank compact = CompactQuestionBank.load(bank.toString(), null);
+                Files.delete(bank);
+                return new Workload() {
+                    int i;
+                    @Override public long run() {
+                        return compact.get(i++ % compact.size()).getQuestionText().length();
+                    }
+                };
+            }
+
+            // grading, through isCorrect(String) and the allocation-free grade(CharSequence)
+            case "MCQ.isCorrect:index": return isCorrect(mcq(), "3");
+            case "MCQ.isCorrect:padded": return isCorrect(mcq(), " 3 ");
+            case "MCQ.isCorrect:text": return isCorrect(mcq(), "paris");
+            case "MCQ.isCorrect:wrong": return isCorrect(mcq(), "Lyon");
+            case "TF.isCorrect:True": return isCorrect(tf(), "True");
+            case "TF.isCorrect:f": return isCorrect(tf(), "f");
+            case "TF.isCorrect:other": return isCorrect(tf(), "maybe");
+            case "FIB.isCorrect:exact": return isCorrect(fib(), "extends");
+            case "FIB.isCorrect:padded": return isCorrect(fib(), "  EXTENDS ");
+            case "FIB.isCorrect:wrong": return isCorrect(fib(), "implements");
+            case "MCQ.grade:padded": return grade(mcq(), new StringBuilder(" 3 "));
+            case "MCQ.grade:text": return grade(mcq(), new StringBuilder("paris"));
+            case "MCQ.grade:wrong": return grade(mcq(), new StringBuilder("Lyon"));
+            case "TF.grade:other": return grade(tf(), new StringBuilder("maybe"));
+            case "FIB.grade:padded": return grade(fib(), new StringBuilder("  EXTENDS "));
+            case "FIB.grade:fuzzy-typo": return grade(fuzzy(), new StringBuilder("pacfic  ocean."));
+            case "FIB.grade:fuzzy-wrong": return grade(fuzzy(), new StringBuilder("Atlantic Ocean"));
+            case "MCQ.gradeOption": {
+                final MCQQuestion m = mcq();
+                return new Workload() {
+                    @Override public long run() {
+                        return m.gradeOption(3) ? 1 : 0;
+                    }
+                };
+            }
+
+            // leaderboard and results store
+            case "LeaderboardEntry.parse": {
+                final String line = "Ayushi Tomar - 9/10 @ 2025-08-19 14:42";
+                return new Workload() {
+                    @Override public long run() {
+                        return LeaderboardEntry.parse(line).score;
+                    }
+                };
+            }
+            case "fullSortTop": {
+                final Path results = results(size);
+                return new Workload() {
+                    @Override public long run() throws Exception {
+                        return fullSortTop(results, 10).size();
+                    }
+                    @Override public void close() throws Exception { Files.delete(results); }
+                };
+            }
+            case "Leaderboard.load": {
+                final Path results = results(size);
+                return new Workload() {
+                    @Override public long run() {
+                        return Leaderboard.load(results.toString(), 10).top().size();
+                    }
+                    @Override public void close() throws Exception { Files.delete(results); }
+                };
+            }
+            case "ResultStore.loadLeaderboard":
+                return storeWorkload(size, null, null);
+            case "ResultStore.top:month":
+                return storeWorkload(size, LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31));
+            case "ResultStore.top:window":
+                return storeWorkload(size, LocalDate.of(2025, 3, 10), LocalDate.of(2025, 4, 9));
+
+            // answer analytics over a log of size answers
+            case "AnswerAnalytics":
+                return analytics(size, false);
+            case "AnswerAnalytics+regrade":
+                return analytics(size, true);
+
+            case "AdaptiveSelector.pick+update":
+                return adaptive(size);
+
+            case "Histogram.recordSince": {
+                final Metrics.Histogram h = new Metrics.Histogram("bench");
+                return new Workload() {
+                    @Override public long run() {
+                        h.recordSince(System.nanoTime() - 1500);
+                        return 1;
+                    }
+                };
+            }
+            case "Metrics.toJson":
+                return new Workload() {
+                    @Override public long run() {
+                        return Metrics.toJson().length();
+                    }
+                };
+
+            case "answers:rebuild": return rendering(false, false);
+            case "answers:rebuild+paint": return rendering(false, true);
+            case "answers:cards": return rendering(true, false);
+            case "answers:cards+paint": return rendering(true, true);
+            default:
+                throw new IllegalArgumentException("Unknown workload " + op);
+        }
+    }
+
+    private static MCQQuestion mcq() {
+        return new MCQQuestion("Capital of France?", new String[] { "Berlin", "Madrid", "Paris", "Rome" }, 3);
+    }
+
+    private static TrueFalseQuestion tf() {
+        return new TrueFalseQuestion("Strings are immutable.", true);
+    }
+
+    private static FillBlankQuestion fib() {
+        return new FillBlankQuestion("Keyword to inherit a class?", "extends");
+    }
+
+    private static FillBlankQuestion fuzzy() {
+        return new FillBlankQuestion("Largest ocean?", "Pacific Ocean | Pacific",
+                new AnswerMatcher.Options(false, true, true, true, 2)); // all leniency opted in
+    }
+
+    private static Workload isCorrect(final Question q, final String answer) {
+        return new Workload() {
+            @Override public long run() {
+                return q.isCorrect(answer) ? 1 : 0;
+            }
+        };
+    }
+
+    private static Workload grade(final Question q, final CharSequence answer) {
+        return new Workload() {
+            @Override public long run() {
+                return q.grade(answer) ? 1 : 0;
+            }
+        };
+    }
+
+    private static Path bank(int n, boolean tagged) throws Exception {
+        Path bank = Files.createTempFile("bench-questions", ".txt");
+        bank.toFile().deleteOnExit();
+        return SyntheticBanks.writeQuestions(bank, n, 42, tagged);
+    }
+
+    private static Path results(int n) throws Exception {
+        Path results = Files.createTempFile("bench-results", ".txt");
+        results.toFile().deleteOnExit();
+        return SyntheticBanks.writeResults(results, n, 7);
+    }
+
+    /** Leaderboard (from == null) or a date range from a store migrated and compacted up front. */
+    private static Workload storeWorkload(int n, final LocalDate from, final LocalDate to) throws Exception {
+        final Path results = results(n);
+        final ResultStore store = ResultStore.open(results.toString());
+        store.compact();
+        return new Workload() {
+            @Override public long run() throws Exception {
+                return from == null ? store.loadLeaderboard(10).top().size() : store.top(from, to, 10).size();
+            }
+            @Override public void close() throws Exception {
+                store.close();
+                Path dir = ResultStore.directoryFor(results.toString());
+                try (DirectoryStream<Path> segments = Files.newDirectoryStream(dir)) {
+                    for (Path seg : segments) Files.delete(seg);
+                }
+                Files.delete(dir);
+                Files.delete(results);
+            }
+        };
+    }
+
+    private static Workload analytics(int n, boolean regrade) throws Exception {
+        Path bankFile = bank(2000, false);
+        final List<Question> bank = QuestionLoader.loadFromFile(bankFile.toString());
+        Files.delete(bankFile);
+        final Path log = Files.createTempFile("bench-answers", ".log");
+        log.toFile().deleteOnExit();
+        SyntheticBanks.writeAnswers(log, bank, n, 5);
+        final List<Question> keys = regrade ? bank : null;
+        return new Workload() {
+            @Override public long run() throws Exception {
+                try (AnswerAnalytics a = new AnswerAnalytics(log.toString(), keys, THREADS_AVAILABLE)) {
+                    return a.questionStats(a.sessionScores()).size();
+                }
+            }
+            @Override public void close() throws Exception { Files.delete(log); }
+        };
+    }
+
+    private static Workload adaptive(final int n) {
+        QuestionBank bank = new QuestionBank() {
+            final Question q = new TrueFalseQuestion("Synthetic question.", true);
+            @Override public int size() { return n; }
+            @Override public Question get(int i) { return q; }
+            @Override public QuestionType typeAt(int i) { return QuestionType.TF; }
+        };
+        final AdaptiveSelector sel = new AdaptiveSelector(bank, null);
+        final Random rnd = new Random(3);
+        final int[] taken = new int[10];
+        return new Workload() {
+            double rating = AdaptiveSelector.INITIAL_RATING;
+            int q;
+
+            @Override public long run() {
+                if (q == taken.length) {
+                    q = 0;
+                    rating = AdaptiveSelector.INITIAL_RATING + 200 * rnd.nextGaussian();
+                }
+                int i = sel.pick(rating, taken, q, rnd);
+                taken[q++] = i;
+                rating = sel.update(i, rating, rnd.nextBoolean());
+                return i;
+            }
+        };
+    }
+
+    /**
+     * Per-question cost of the answer area on a 720x520 quiz screen: update it for
+     * the next question and lay out (and paint), as the EDT does after
+     * renderQuestion. Runs headless on the benchmark thread, painting into an image.
+     */
+    private static Workload rendering(boolean cards, final boolean paint) throws Exception {
+        Path bankFile = bank(300, false);
+        final List<Question> bank = QuestionLoader.loadFromFile(bankFile.toString());
+        Files.delete(bankFile);
+        final BufferedImage image = new BufferedImage(720, 520, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g = image.createGraphics();
+        final RebuildingAnswerPanel old = cards ? null : new RebuildingAnswerPanel();
+        final AnswerCards answerCards = cards ? new AnswerCards() : null;
+        final JPanel screen = screen(cards ? answerCards : old);
+        return new Workload() {
+            int i;
+            @Override public long run() {
+                Question q = bank.get(i++ % bank.size());
+                if (old != null) old.render(q);
+                else answerCards.show(q);
+                screen.validate();
+                if (paint) screen.paint(g);
+                return i;
+            }
+            @Override public void close() { g.dispose(); }
+        };
+    }
+
+    private static JPanel screen(JPanel answers) {
+        JPanel p = new JPanel(new BorderLayout());
+        p.add(new JLabel("Q1/10: question"), BorderLayout.NORTH);
+        p.add(answers, BorderLayout.CENTER);
+        p.setSize(720, 520);
+        p.addNotify(); // displayable, so revalidate() marks it invalid as it would on screen
+        p.validate();
+        return p;
+    }
+
+    /** renderQuestion's answer area before AnswerCards, kept verbatim for comparison. */
+    static final class RebuildingAnswerPanel extends JPanel {
+        private ButtonGroup mcqGroup = new ButtonGroup();
+        private JRadioButton[] mcqButtons = new JRadioButton[4];
+        private JRadioButton tfTrue = new JRadioButton("True");
+        private JRadioButton tfFalse = new JRadioButton("False");
+        private JTextField fibField = new JTextField();
+
+        RebuildingAnswerPanel() {
+            setLayout(new GridLayout(6, 1, 6, 6));
+            for (int i = 0; i < 4; i++) {
+                mcqButtons[i] = new JRadioButton();
+                mcqButtons[i].setActionCommand(String.valueOf(i + 1));
+            }
+        }
+
+        void render(Question q) {
+            removeAll();
+            mcqGroup = new ButtonGroup();
+            if (q.getType() == QuestionType.MCQ) {
+                MCQQuestion m = (MCQQuestion) q;
+                String[] opts = m.getOptions();
+                for (int i = 0; i < 4; i++) {
+                    mcqButtons[i].setText((i + 1) + ". " + opts[i]);
+                    mcqButtons[i].setSelected(false);
+                    mcqGroup.add(mcqButtons[i]);
+                    add(mcqButtons[i]);
+                }
+            } else if (q.getType() == QuestionType.TF) {
+                tfTrue.setSelected(false);
+                tfFalse.setSelected(false);
+                ButtonGroup tfGroup = new ButtonGroup();
+                tfGroup.add(tfTrue);
+                tfGroup.add(tfFalse);
+                add(tfTrue);
+                add(tfFalse);
+            } else { // FIB
+                fibField.setText("");
+                add(new JLabel("Type your answer:"));
+                add(fibField);
+            }
+            revalidate();
+            repaint();
+        }
+    }
+
+    /** The pre-Leaderboard renderLeaderboard path: parse every line, sort all, take the top. */
+    static List<LeaderboardEntry> fullSortTop(Path results, int limit) throws Exception {
+        List<LeaderboardEntry> entries = new ArrayList<LeaderboardEntry>();
+        try (BufferedReader br = Files.newBufferedReader(results, StandardCharsets.UTF_8)) {
+            String ln;
+            while ((ln = br.readLine()) != null) {
+                LeaderboardEntry e = LeaderboardEntry.parse(ln);
+                if (e != null) entries.add(e);
+            }
+        }
+        Collections.sort(entries, Leaderboard.RANKING);
+        return entries.subList(0, Math.min(limit, entries.size()));
+    }
+}
@@ -0,0 +1,10 @@
+package quizbench;
+
+/** A leaderboard under contention: writers offer results, a reader takes the top. */
+public interface ContendedBoard {
+    /** Offers one result by player, scored per the workload. */
+    void offer(String player);
+
+    /** Takes a top-10 snapshot; returns its size. */
+    int top();
+}
@@ -0,0 +1,65 @@
+package quizbench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Filtered quiz generation on a large tagged bank: for a set of filters
+ * (common and rare tags, types, words and combinations), drawing a 20-question
+ * quiz through the QuestionIndex against a linear scan that decodes and tests
+ * every question. Setting up each trial builds and indexes the bank and checks
+ * the index's matches against the scan (see FilteredWorkloads).
+ *
+ *   gradle jmh -Pbench=FilteredSampling
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class FilteredSampling {
+    @Param({ "tag:java-0", "tag:java-0 type:mcq", "tag:java-0 tag:class-0", "category:programming",
+             "tag:programming type:tf lambda", "tag:heap-1", "type:fib heap stack",
+             "tag:stack-1 tag:heap-1 type:mcq", "compiler runtime generic", "tag:no-such-topic" })
+    public String filter;
+    @Param({ "2000000" })
+    public int questions;
+
+    private SampledBank bank;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        bank = Fixtures.create("FilteredWorkloads", SampledBank.class, filter, questions);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        bank.close();
+    }
+
+    @Benchmark
+    public void indexed(Blackhole bh) {
+        bh.consume(bank.indexed());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void scanned(Blackhole bh) {
+        bh.consume(bank.scanned());
+    }
+}
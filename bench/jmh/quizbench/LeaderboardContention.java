@@ -0,0 +1,75 @@
+package quizbench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Contention benchmark for the live leaderboard: writer threads record results
+ * as fast as they can while one reader keeps taking top-10 snapshots, for the
+ * live board and the synchronized heap it replaced, under the random and
+ * rising workloads (see ContentionBoards). Reports offers/s and reads/s per
+ * group. Writers default to 8; for 1 and 64 pass the thread groups, writers
+ * first:
+ *
+ *   gradle jmh -Pbench=LeaderboardContention -PthreadGroups=64,1
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class LeaderboardContention {
+    @Param({ "synchronized-heap", "copy-on-write" })
+    public String board;
+    @Param({ "random", "rising" })
+    public String workload;
+
+    private ContendedBoard contended;
+
+    /** A writer's player name, one per thread. */
+    @State(Scope.Thread)
+    public static class Writer {
+        private static final AtomicInteger NEXT = new AtomicInteger();
+        String player;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            player = "player" + NEXT.getAndIncrement();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        contended = Fixtures.create("ContentionBoards", ContendedBoard.class, board, workload);
+    }
+
+    @Benchmark
+    @Group("board")
+    @GroupThreads(8)
+    public void offer(Writer w) {
+        contended.offer(w.player);
+    }
+
+    @Benchmark
+    @Group("board")
+    @GroupThreads(1)
+    public int read() {
+        return contended.top();
+    }
+}
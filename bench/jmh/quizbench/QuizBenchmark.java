@@ -0,0 +1,163 @@
+package quizbench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Micro-benchmarks for the loading, grading, leaderboard, analytics, adaptive,
+ * metrics and rendering paths. Each benchmark runs one group of operations,
+ * picked by its op parameter (and size, where the data size matters); the
+ * operations themselves are built by QuizWorkloads. Run with -prof gc for the
+ * allocation figures (bytes per op, allocation rate, collections).
+ *
+ *   gradle jmh -Pbench=QuizBenchmark.grading
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class QuizBenchmark {
+    /** The QuizWorkloads operation named by op() at size(), for one trial. */
+    public abstract static class Op {
+        Workload work;
+
+        abstract String op();
+
+        int size() { return 0; }
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            work = Fixtures.create("QuizWorkloads", Workload.class, op(), size());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            work.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Loading extends Op {
+        @Param({ "QuestionLoader.loadFromFile", "CompactQuestionBank.load", "CompactQuestionBank.get+text" })
+        public String op;
+        @Param({ "1000", "10000", "100000" })
+        public int size;
+
+        @Override String op() { return op; }
+        @Override int size() { return size; }
+    }
+
+    @State(Scope.Thread)
+    public static class Grading extends Op {
+        @Param({ "MCQ.isCorrect:index", "MCQ.isCorrect:padded", "MCQ.isCorrect:text", "MCQ.isCorrect:wrong",
+                 "TF.isCorrect:True", "TF.isCorrect:f", "TF.isCorrect:other",
+                 "FIB.isCorrect:exact", "FIB.isCorrect:padded", "FIB.isCorrect:wrong",
+                 "MCQ.grade:padded", "MCQ.grade:text", "MCQ.grade:wrong", "TF.grade:other",
+                 "FIB.grade:padded", "FIB.grade:fuzzy-typo", "FIB.grade:fuzzy-wrong", "MCQ.gradeOption" })
+        public String op;
+
+        @Override String op() { return op; }
+    }
+
+    @State(Scope.Thread)
+    public static class Results extends Op {
+        @Param({ "fullSortTop", "Leaderboard.load", "ResultStore.loadLeaderboard",
+                 "ResultStore.top:month", "ResultStore.top:window" })
+        public String op;
+        @Param({ "100000", "1000000" })
+        public int size;
+
+        @Override String op() { return op; }
+        @Override int size() { return size; }
+    }
+
+    @State(Scope.Thread)
+    public static class Analytics extends Op {
+        @Param({ "AnswerAnalytics", "AnswerAnalytics+regrade" })
+        public String op;
+        @Param({ "1000000" })
+        public int size;
+
+        @Override String op() { return op; }
+        @Override int size() { return size; }
+    }
+
+    @State(Scope.Thread)
+    public static class Adaptive extends Op {
+        @Param({ "10000", "1000000" })
+        public int size;
+
+        @Override String op() { return "AdaptiveSelector.pick+update"; }
+        @Override int size() { return size; }
+    }
+
+    /** Work done once per answer, result line or metrics read. */
+    @State(Scope.Thread)
+    public static class PerEvent extends Op {
+        @Param({ "LeaderboardEntry.parse", "Histogram.recordSince", "Metrics.toJson" })
+        public String op;
+
+        @Override String op() { return op; }
+    }
+
+    @State(Scope.Thread)
+    public static class Rendering extends Op {
+        @Param({ "answers:rebuild", "answers:rebuild+paint", "answers:cards", "answers:cards+paint" })
+        public String op;
+
+        @Override String op() { return op; }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void loading(Loading s, Blackhole bh) throws Exception {
+        bh.consume(s.work.run());
+    }
+
+    @Benchmark
+    public void grading(Grading s, Blackhole bh) throws Exception {
+        bh.consume(s.work.run());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void results(Results s, Blackhole bh) throws Exception {
+        bh.consume(s.work.run());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void analytics(Analytics s, Blackhole bh) throws Exception {
+        bh.consume(s.work.run());
+    }
+
+    @Benchmark
+    public void adaptive(Adaptive s, Blackhole bh) throws Exception {
+        bh.consume(s.work.run());
+    }
+
+    @Benchmark
+    public void perEvent(PerEvent s, Blackhole bh) throws Exception {
+        bh.consume(s.work.run());
+    }
+
+    @Benchmark
+    public void rendering(Rendering s, Blackhole bh) throws Exception {
+        bh.consume(s.work.run());
+    }
+}
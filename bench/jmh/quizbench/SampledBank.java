@@ -0,0 +1,13 @@
+package quizbench;
+
+/** A large tagged bank with its index, and one filter to draw quizzes with. */
+public interface SampledBank {
+    /** Draws one quiz through the index; returns its length. */
+    long indexed();
+
+    /** Decodes and tests every question against the filter; returns the matches. */
+    long scanned();
+
+    /** Deletes the generated bank files. */
+    void close() throws Exception;
+}
@@ -0,0 +1,10 @@
+package quizbench;
+
+/** One benchmarked operation, built by a default-package fixture (see Fixtures). */
+public interface Workload {
+    /** Runs the operation once; the result is consumed so the JIT cannot drop it. */
+    long run() throws Exception;
+
+    /** Releases what the fixture set up (temp files, stores). */
+    default void close() throws Exception {}
+}